@@ -0,0 +1,83 @@
+package net.cortex.clientAddon.cracker;
+
+import net.earthcomputer.clientcommands.features.LCGRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a lattice crack from the velocity intervals of thrown items, the way {@link SeedCracker} does it: each
+ * item's spawn packet velocity is decoded into bounds on the angle and magnitude floats, and the crack is attempted once
+ * the samples hold 48 bits between them.
+ *
+ * The velocities are simulated from known player RNG seeds with {@link ItemThrowDecoder#predictVelocity(long)}, so the
+ * samples are the same ones a live crack would get.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ItemThrowCrackBenchmark {
+
+    private static final long[] PLAYER_SEEDS = {0x5a3c1e0f2b4dL, 0x0123456789abL, 0xfedcba987654L, 0x1f2e3d4c5b6aL};
+    private static final int MAX_ITEMS = 64;
+
+    @Param({"0", "1", "2", "3"})
+    public int sample;
+
+    private int[] steps;
+    private long[] lowerBounds;
+    private long[] upperBounds;
+
+    @Setup
+    public void setup() {
+        steps = new int[2 * MAX_ITEMS];
+        lowerBounds = new long[2 * MAX_ITEMS];
+        upperBounds = new long[2 * MAX_ITEMS];
+        int sampleCount = 0;
+        double information = 0;
+        long state = PLAYER_SEEDS[sample];
+        for (int item = 0; item < MAX_ITEMS && information < 48; item++) {
+            long velocity = ItemThrowDecoder.predictVelocity(LCGRandom.step(state));
+            state = LCGRandom.advance(state, Lattice_cracker.ITEM_STEPS);
+            ItemThrowDecoder decoded = ItemThrowDecoder.decode(ItemThrowDecoder.getPredictedVelocityX(velocity),
+                    ItemThrowDecoder.getPredictedVelocityZ(velocity));
+            if (decoded == null)
+                continue;
+            // the angle float is drawn first, then the magnitude float
+            long[][] bounds = {decoded.angleBounds, decoded.magnitudeBounds};
+            for (int i = 0; i < 2; i++) {
+                double sampleInformation = ItemThrowDecoder.getInformation(bounds[i]);
+                if (sampleInformation < 1)
+                    continue;
+                steps[sampleCount] = Lattice_cracker.ITEM_STEPS * item + i;
+                lowerBounds[sampleCount] = bounds[i][0];
+                upperBounds[sampleCount] = bounds[i][1];
+                sampleCount++;
+                information += sampleInformation;
+            }
+        }
+        steps = Arrays.copyOf(steps, sampleCount);
+        lowerBounds = Arrays.copyOf(lowerBounds, sampleCount);
+        upperBounds = Arrays.copyOf(upperBounds, sampleCount);
+    }
+
+    @Benchmark
+    public long[] crack() {
+        return Lattice_cracker.crackAll(steps, lowerBounds, upperBounds);
+    }
+
+}
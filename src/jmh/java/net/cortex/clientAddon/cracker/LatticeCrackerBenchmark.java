@@ -0,0 +1,43 @@
+package net.cortex.clientAddon.cracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a whole lattice crack on 20-sample bit vectors recorded from the top 4 bits of the item throw angles of
+ * known player RNG seeds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LatticeCrackerBenchmark {
+
+    private static final long[][] RECORDED_BITS = {
+            {6, 15, 13, 13, 12, 12, 5, 3, 13, 12, 12, 15, 9, 7, 15, 10, 14, 10, 14, 3},
+            {7, 6, 0, 14, 13, 9, 15, 10, 13, 6, 11, 9, 5, 2, 8, 1, 11, 7, 0, 12},
+            {13, 8, 5, 2, 2, 11, 2, 1, 2, 15, 3, 14, 7, 13, 4, 15, 5, 1, 12, 10},
+            {1, 10, 6, 12, 7, 0, 4, 5, 12, 6, 13, 15, 7, 4, 6, 10, 15, 13, 14, 7},
+    };
+
+    @Param({"0", "1", "2", "3"})
+    public int sample;
+
+    @Benchmark
+    public long crack() {
+        return Lattice_cracker.crack(RECORDED_BITS[sample]);
+    }
+
+}
@@ -0,0 +1,128 @@
+package net.cortex.clientAddon.cracker;
+
+import net.earthcomputer.clientcommands.features.CrackSimulator;
+import net.earthcomputer.clientcommands.features.LCGRandom;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that the lattice crack never misses the real seed, over thousands of seeded player RNG seeds. Both kinds of
+ * samples are checked: the top 4 bits of the item throw angles, and the intervals decoded from spawn packet velocities
+ * simulated by {@link CrackSimulator#throwItem(Random, float)}, the way {@link SeedCracker} gets them. Also reports how many lines and points the enumeration walked, so
+ * changes to the reduction or the search box can be compared. Run it with <code>gradlew checkLatticeCracker</code>,
+ * optionally with <code>-PlatticeCheck.seeds=&lt;n&gt;</code>. Fails on the first miss.
+ */
+public final class LatticeCrackerCheck {
+
+    private static final int ANGLE_BITS = 4;
+    private static final int MAX_ITEMS = 64;
+
+    private LatticeCrackerCheck() {
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        Random seedSource = new Random(0);
+        Stats angleBits = new Stats("Top " + ANGLE_BITS + " angle bits");
+        Stats decodedThrows = new Stats("Decoded item throws");
+        for (int i = 0; i < seeds; i++) {
+            long playerSeed = seedSource.nextLong() & LCGRandom.MASK;
+            checkAngleBits(playerSeed, angleBits);
+            checkDecodedThrows(playerSeed, decodedThrows);
+        }
+        angleBits.print();
+        decodedThrows.print();
+    }
+
+    private static void checkAngleBits(long playerSeed, Stats stats) {
+        int sampleCount = Lattice_cracker.getSamplesNeeded(ANGLE_BITS);
+        int[] steps = new int[sampleCount];
+        long[] lowerBounds = new long[sampleCount];
+        long[] upperBounds = new long[sampleCount];
+        long state = LCGRandom.step(playerSeed);
+        for (int i = 0; i < sampleCount; i++) {
+            steps[i] = i * Lattice_cracker.ITEM_STEPS;
+            lowerBounds[i] = (state >>> (48 - ANGLE_BITS)) << (48 - ANGLE_BITS);
+            upperBounds[i] = lowerBounds[i] + (1L << (48 - ANGLE_BITS)) - 1;
+            state = LCGRandom.advance(state, Lattice_cracker.ITEM_STEPS);
+        }
+        check(playerSeed, steps, lowerBounds, upperBounds, stats);
+    }
+
+    // the same samples as SeedCracker, up to the point where it first attempts a crack
+    private static void checkDecodedThrows(long playerSeed, Stats stats) {
+        int[] steps = new int[2 * MAX_ITEMS];
+        long[] lowerBounds = new long[2 * MAX_ITEMS];
+        long[] upperBounds = new long[2 * MAX_ITEMS];
+        int sampleCount = 0;
+        double information = 0;
+        LCGRandom serverRand = LCGRandom.withState(playerSeed);
+        for (int item = 0; item < MAX_ITEMS && information < SeedCracker.CRACK_INFORMATION; item++) {
+            long velocity = CrackSimulator.throwItem(serverRand, 0);
+            ItemThrowDecoder decoded = ItemThrowDecoder.decode(ItemThrowDecoder.getPredictedVelocityX(velocity),
+                    ItemThrowDecoder.getPredictedVelocityZ(velocity));
+            if (decoded == null)
+                throw new AssertionError("Couldn't decode an item thrown with player seed " + playerSeed);
+            sampleCount = SeedCracker.addItemSamples(item, decoded, steps, lowerBounds, upperBounds, sampleCount);
+            information = SeedCracker.getInformation(lowerBounds, upperBounds, sampleCount);
+        }
+        check(playerSeed, Arrays.copyOf(steps, sampleCount), Arrays.copyOf(lowerBounds, sampleCount),
+                Arrays.copyOf(upperBounds, sampleCount), stats);
+    }
+
+    private static void check(long playerSeed, int[] steps, long[] lowerBounds, long[] upperBounds, Stats stats) {
+        long startTime = System.nanoTime();
+        LatticeEnumerator enumerator = Lattice_cracker.createEnumerator(steps, lowerBounds, upperBounds);
+        List<long[]> tuples = enumerator.enumerate();
+        long nanos = System.nanoTime() - startTime;
+
+        // the first sample is steps[0] steps after the state behind the first item's angle
+        long expected = LCGRandom.advance(LCGRandom.step(playerSeed), steps[0]);
+        boolean found = false;
+        for (long[] tuple : tuples) {
+            if ((tuple[0] & LCGRandom.MASK) == expected)
+                found = true;
+        }
+        if (!found) {
+            throw new AssertionError(stats.name + " missed player seed " + playerSeed + " with steps "
+                    + Arrays.toString(steps) + ", lower bounds " + Arrays.toString(lowerBounds) + ", upper bounds "
+                    + Arrays.toString(upperBounds));
+        }
+        stats.record(enumerator.getOuterVolume(), tuples.size(), nanos);
+    }
+
+    private static final class Stats {
+        private final String name;
+        private int runs = 0;
+        private long totalLines = 0;
+        private long maxLines = 0;
+        private long totalPoints = 0;
+        private long maxPoints = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        private Stats(String name) {
+            this.name = name;
+        }
+
+        private void record(long lines, int points, long nanos) {
+            runs++;
+            totalLines += lines;
+            maxLines = Math.max(maxLines, lines);
+            totalPoints += points;
+            maxPoints = Math.max(maxPoints, points);
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        private void print() {
+            System.out.printf("%s: no misses in %d seeds, %.1f lines walked on average (%d at most), %.2f points "
+                            + "found on average (%d at most), %.3f ms on average, %.3f ms at most%n", name, runs,
+                    (double) totalLines / runs, maxLines, (double) totalPoints / runs, maxPoints,
+                    totalNanos / 1e6 / runs, maxNanos / 1e6);
+        }
+    }
+
+}
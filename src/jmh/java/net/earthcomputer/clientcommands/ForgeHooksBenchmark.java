@@ -0,0 +1,80 @@
+package net.earthcomputer.clientcommands;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways {@link ForgeHooks} could call into Forge, on a stand-in with the same shape as
+ * <code>ForgeHooks.getEnchantPower</code>: reflection with <code>Method.invoke</code>, which boxes the arguments and the
+ * result, a static final <code>MethodHandle</code> called with <code>invokeExact</code>, and a direct call as the
+ * baseline. Each benchmark makes the 32 calls of one enchanting power calculation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ForgeHooksBenchmark {
+
+    private static final int CALLS = 32;
+
+    private static final Method REFLECTIVE;
+    private static final MethodHandle HANDLE;
+    static {
+        try {
+            REFLECTIVE = ForgeHooksBenchmark.class.getMethod("getEnchantPower", World.class, BlockPos.class);
+            HANDLE = MethodHandles.publicLookup().unreflect(REFLECTIVE)
+                    .asType(MethodType.methodType(int.class, World.class, BlockPos.class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private World world;
+    private final BlockPos pos = new BlockPos(1, 2, 3);
+
+    public static int getEnchantPower(World world, BlockPos pos) {
+        return pos.getY() & 1;
+    }
+
+    @Benchmark
+    public int reflective() throws ReflectiveOperationException {
+        int power = 0;
+        for (int i = 0; i < CALLS; i++)
+            power += (Integer) REFLECTIVE.invoke(null, world, pos);
+        return power;
+    }
+
+    @Benchmark
+    public int methodHandle() throws Throwable {
+        int power = 0;
+        for (int i = 0; i < CALLS; i++)
+            power += (int) HANDLE.invokeExact(world, pos);
+        return power;
+    }
+
+    @Benchmark
+    public int direct() {
+        int power = 0;
+        for (int i = 0; i < CALLS; i++)
+            power += getEnchantPower(world, pos);
+        return power;
+    }
+
+}
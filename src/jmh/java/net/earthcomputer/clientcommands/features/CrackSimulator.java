@@ -0,0 +1,260 @@
+package net.earthcomputer.clientcommands.features;
+
+import net.cortex.clientAddon.cracker.ItemThrowDecoder;
+import net.cortex.clientAddon.cracker.SeedCracker;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Simulates a server-side player RNG over thousands of seeds and runs the crackers against what the client would see,
+ * reporting how often each crack succeeds, how many samples it needs and how long it takes. Run it with
+ * <code>gradlew simulateCracks</code>, optionally with <code>-Psimulator.seeds=&lt;n&gt;</code>.
+ *
+ * SeedCracker and EnchantmentCracker keep their state in statics tied to the running client, so the simulator calls
+ * the static steps they are built from in the same order instead: {@link SeedCracker} collects samples from spawn packet
+ * velocities, cracks them and checks the candidates against every item, and {@link EnchantmentCracker} filters
+ * {@link XPSeedCandidates} with table observations and then narrows down {@link PlayerSeedCandidates}. The tables, both
+ * the server's and the cracker's, are {@link EnchantmentOutcomeTable}s from {@link EnchantingFixtures}. The server's
+ * item throws are worked out the way vanilla does them, see {@link #throwItem(Random, float)}. Every run is seeded, so
+ * results can be compared between changes.
+ */
+public final class CrackSimulator {
+
+    private static final int MAX_OBSERVATIONS_PER_XP_SEED = 20;
+    private static final int MAX_ENCHANTMENTS = 10;
+    private static final int MAX_VANILLA_ENCHANT_LEVEL = 30;
+    private static final int[][] NO_LEVEL_OVERRIDES = createIdentityLevelOverrides();
+
+    private CrackSimulator() {
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        // let the JIT warm up before anything is timed
+        simulate(Math.min(seeds, 20), new Random(-1));
+        System.out.println("Simulating " + seeds + " player RNG seeds");
+        simulate(seeds, new Random(0));
+    }
+
+    private static void simulate(int seeds, Random seedSource) {
+        Stats itemStats = new Stats("Item throw crack", "items");
+        Stats xpSeedStats = new Stats("XP seed crack", "table observations");
+        Stats playerSeedStats = new Stats("Player seed crack", "enchantments");
+        for (int i = 0; i < seeds; i++) {
+            long playerSeed = seedSource.nextLong() & LCGRandom.MASK;
+            simulateItemCrack(playerSeed, itemStats);
+            simulateEnchantmentCrack(playerSeed, new Random(seedSource.nextLong()), xpSeedStats, playerSeedStats);
+        }
+        itemStats.print();
+        xpSeedStats.print();
+        playerSeedStats.print();
+    }
+
+    // ITEM THROW CRACK
+
+    private static void simulateItemCrack(long playerSeed, Stats stats) {
+        long startTime = System.nanoTime();
+        int[] velocitiesX = new int[SeedCracker.MAX_ITEMS];
+        int[] velocitiesZ = new int[SeedCracker.MAX_ITEMS];
+        int[] steps = new int[2 * SeedCracker.MAX_ITEMS];
+        long[] lowerBounds = new long[2 * SeedCracker.MAX_ITEMS];
+        long[] upperBounds = new long[2 * SeedCracker.MAX_ITEMS];
+        int sampleCount = 0;
+        long[] candidates = null;
+
+        // the server's RNG, which the client never sees directly
+        LCGRandom serverRand = LCGRandom.withState(playerSeed);
+        for (int item = 0; item < SeedCracker.MAX_ITEMS; item++) {
+            // SeedCracker throws with a yaw of 0
+            long velocity = throwItem(serverRand, 0);
+            velocitiesX[item] = ItemThrowDecoder.getPredictedVelocityX(velocity);
+            velocitiesZ[item] = ItemThrowDecoder.getPredictedVelocityZ(velocity);
+            int itemsSeen = item + 1;
+
+            if (candidates != null) {
+                candidates = SeedCracker.retainConsistentCandidates(candidates, item, itemsSeen, velocitiesX,
+                        velocitiesZ);
+            } else {
+                ItemThrowDecoder decoded = ItemThrowDecoder.decode(velocitiesX[item], velocitiesZ[item]);
+                if (decoded == null) {
+                    stats.fail(itemsSeen, System.nanoTime() - startTime);
+                    return;
+                }
+                sampleCount = SeedCracker.addItemSamples(item, decoded, steps, lowerBounds, upperBounds, sampleCount);
+                if (SeedCracker.getInformation(lowerBounds, upperBounds, sampleCount) < SeedCracker.CRACK_INFORMATION)
+                    continue;
+                candidates = SeedCracker.crackFirstItemStates(Arrays.copyOf(steps, sampleCount),
+                        Arrays.copyOf(lowerBounds, sampleCount), Arrays.copyOf(upperBounds, sampleCount));
+                candidates = SeedCracker.retainConsistentCandidates(candidates, 0, itemsSeen, velocitiesX,
+                        velocitiesZ);
+            }
+
+            if (candidates.length == 0) {
+                stats.fail(itemsSeen, System.nanoTime() - startTime);
+                return;
+            }
+            if (candidates.length == 1) {
+                boolean correct = candidates[0] == LCGRandom.step(playerSeed);
+                stats.record(correct, itemsSeen, System.nanoTime() - startTime);
+                return;
+            }
+        }
+        stats.fail(SeedCracker.MAX_ITEMS, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Throws an item the way PlayerEntity.dropItem does on the server, looking straight down, and returns the horizontal
+     * velocity in the spawn packet, packed the same way as {@link ItemThrowDecoder#predictVelocity(long)}. This is
+     * written out from vanilla rather than calling the decoder, so that the crackers are checked against the server
+     * and not against themselves
+     */
+    public static long throwItem(Random rand, float yaw) {
+        float pitch = 90;
+        float cosPitch = MathHelper.cos(pitch * 0.017453292F);
+        float sinYaw = MathHelper.sin(yaw * 0.017453292F);
+        float cosYaw = MathHelper.cos(yaw * 0.017453292F);
+        float angle = rand.nextFloat() * 6.2831855F;
+        float magnitude = 0.02F * rand.nextFloat();
+        double velocityX = (double) (-sinYaw * cosPitch * 0.3F) + Math.cos((double) angle) * (double) magnitude;
+        double velocityZ = (double) (cosYaw * cosPitch * 0.3F) + Math.sin((double) angle) * (double) magnitude;
+        // the vertical velocity, which the crackers don't use
+        rand.nextFloat();
+        rand.nextFloat();
+        return ((long) toPacketVelocity(velocityX) << 32) | (toPacketVelocity(velocityZ) & 0xffffffffL);
+    }
+
+    // as in EntitySpawnS2CPacket
+    private static int toPacketVelocity(double velocity) {
+        return (int) (MathHelper.clamp(velocity, -3.9, 3.9) * 8000.0);
+    }
+
+    // ENCHANTMENT CRACK
+
+    private static void simulateEnchantmentCrack(long playerSeed, Random world, Stats xpSeedStats,
+                                                 Stats playerSeedStats) {
+        LCGRandom serverRand = LCGRandom.withState(playerSeed);
+        // the XP seed the player already had, which came from before we started watching
+        int xpSeed = world.nextInt();
+        XPSeedCandidates xpSeeds = new XPSeedCandidates();
+        PlayerSeedCandidates playerSeeds = new PlayerSeedCandidates();
+        PlayerSeedCandidates workingPlayerSeeds = new PlayerSeedCandidates();
+        boolean firstXPSeed = true;
+        long startTime = System.nanoTime();
+        int enchantments = 0;
+
+        while (enchantments < MAX_ENCHANTMENTS) {
+            long xpSeedStartTime = System.nanoTime();
+            if (!crackXPSeed(xpSeed, world, xpSeeds, xpSeedStats, xpSeedStartTime)) {
+                playerSeedStats.fail(enchantments, System.nanoTime() - startTime);
+                return;
+            }
+            if (!firstXPSeed) {
+                EnchantmentCracker.getNextPlayerRandSeeds(playerSeeds, workingPlayerSeeds, xpSeeds.get(0));
+                PlayerSeedCandidates swap = playerSeeds;
+                playerSeeds = workingPlayerSeeds;
+                workingPlayerSeeds = swap;
+                if (playerSeeds.size() == 0) {
+                    playerSeedStats.fail(enchantments, System.nanoTime() - startTime);
+                    return;
+                }
+                if (playerSeeds.size() == 1) {
+                    boolean correct = playerSeeds.get(0) == serverRand.getState();
+                    playerSeedStats.record(correct, enchantments, System.nanoTime() - startTime);
+                    return;
+                }
+            }
+            firstXPSeed = false;
+
+            // enchant, which draws the next XP seed from the player RNG
+            xpSeed = serverRand.nextInt();
+            enchantments++;
+        }
+        playerSeedStats.fail(MAX_ENCHANTMENTS, System.nanoTime() - startTime);
+    }
+
+    private static boolean crackXPSeed(int xpSeed, Random world, XPSeedCandidates candidates, Stats stats,
+                                       long startTime) {
+        // the table the server enchants with
+        EnchantmentOutcomeTable serverTable = EnchantingFixtures.createOutcomeTable();
+        serverTable.setXPSeed(xpSeed);
+        int[] levels = new int[3];
+        int[] enchantmentClues = new int[3];
+        int[] levelClues = new int[3];
+        // the server only tells us 12 bits of the seed
+        candidates.fill(xpSeed);
+
+        for (int observation = 1; observation <= MAX_OBSERVATIONS_PER_XP_SEED; observation++) {
+            // the player moves bookshelves around between looks at the table
+            int bookshelves = world.nextInt(16);
+            serverTable.calculateLevels(bookshelves, levels);
+            for (int slot = 0; slot < 3; slot++) {
+                int clue = levels[slot] == 0 ? -1 : serverTable.getClue(slot, levels[slot]);
+                enchantmentClues[slot] = clue == -1 ? -1 : EnchantmentOutcomeTable.getEnchantmentId(clue);
+                levelClues[slot] = clue == -1 ? -1 : EnchantmentOutcomeTable.getEnchantmentLevel(clue);
+            }
+            EnchantmentCracker.retainPossibleXPSeeds(CrackingService.createDetachedJob("simulator"), candidates,
+                    EnchantingFixtures::createOutcomeTable, bookshelves, NO_LEVEL_OVERRIDES, levels, enchantmentClues,
+                    levelClues);
+            if (candidates.size() == 0) {
+                stats.fail(observation, System.nanoTime() - startTime);
+                return false;
+            }
+            if (candidates.size() == 1) {
+                boolean correct = candidates.get(0) == xpSeed;
+                stats.record(correct, observation, System.nanoTime() - startTime);
+                return correct;
+            }
+        }
+        stats.fail(MAX_OBSERVATIONS_PER_XP_SEED, System.nanoTime() - startTime);
+        return false;
+    }
+
+    // an unmodded table, where every slot keeps the level vanilla picks
+    private static int[][] createIdentityLevelOverrides() {
+        int[][] levelOverrides = new int[3][MAX_VANILLA_ENCHANT_LEVEL + 1];
+        for (int slot = 0; slot < 3; slot++) {
+            for (int level = 0; level <= MAX_VANILLA_ENCHANT_LEVEL; level++)
+                levelOverrides[slot][level] = level;
+        }
+        return levelOverrides;
+    }
+
+    private static final class Stats {
+        private final String name;
+        private final String sampleName;
+        private int runs = 0;
+        private int successes = 0;
+        private long totalSamples = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        private Stats(String name, String sampleName) {
+            this.name = name;
+            this.sampleName = sampleName;
+        }
+
+        private void record(boolean success, int samples, long nanos) {
+            runs++;
+            if (success)
+                successes++;
+            totalSamples += samples;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        private void fail(int samples, long nanos) {
+            record(false, samples, nanos);
+        }
+
+        private void print() {
+            if (runs == 0)
+                return;
+            System.out.printf("%s: %.2f%% of %d succeeded, %.2f %s on average, %.3f ms on average, %.3f ms at most%n",
+                    name, 100.0 * successes / runs, runs, (double) totalSamples / runs, sampleName,
+                    totalNanos / 1e6 / runs, maxNanos / 1e6);
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package net.earthcomputer.clientcommands.features;
+
+import java.util.Arrays;
+
+/**
+ * Stand-ins for the game registries which {@link EnchantmentOutcomeTable} needs, with a fixed item (a diamond sword)
+ * and its table enchantments, so that the benchmarks and the simulator can run without bootstrapping the game.
+ *
+ * Enchantments are encoded the same way as in {@link EnchantmentOutcomeTable}, <code>(id << 8) | level</code>, where
+ * the id is an index into the arrays below.
+ */
+final class EnchantingFixtures {
+
+    static final int ENCHANTABILITY = 10;
+
+    // sharpness, smite, bane of arthropods, knockback, fire aspect, looting, sweeping edge, unbreaking
+    private static final int[] WEIGHTS = {10, 5, 5, 5, 2, 2, 2, 5};
+    private static final int[] MAX_LEVELS = {5, 5, 5, 2, 2, 3, 3, 3};
+    // minimum power is MIN_POWER_BASE + (level - 1) * MIN_POWER_PER_LEVEL
+    private static final int[] MIN_POWER_BASE = {1, 5, 5, 5, 10, 15, 5, 5};
+    private static final int[] MIN_POWER_PER_LEVEL = {11, 8, 8, 20, 20, 9, 9, 8};
+    // maximum power is either a fixed amount above the minimum, or Enchantment's default of 1 + level * 10 + 50
+    private static final int[] MAX_POWER_ABOVE_MIN = {20, 20, 20, -1, -1, -1, 15, -1};
+    // the damage enchantments are incompatible with each other
+    private static final int[] GROUPS = {1, 1, 1, 0, 0, 0, 0, 0};
+
+    static final int SHARPNESS = 0;
+    static final int SMITE = 1;
+    static final int LOOTING = 5;
+    static final int ENCHANTMENT_COUNT = WEIGHTS.length;
+    // the fixture item can reach a power of 40 at most
+    private static final int MAX_POWER = 64;
+
+    private static final boolean[][] COMPATIBLE = new boolean[ENCHANTMENT_COUNT][ENCHANTMENT_COUNT];
+    private static final int[][] CANDIDATE_ENCHANTMENTS = new int[MAX_POWER + 1][];
+    private static final int[][] CANDIDATE_WEIGHTS = new int[MAX_POWER + 1][];
+    static {
+        for (int a = 0; a < ENCHANTMENT_COUNT; a++) {
+            for (int b = 0; b < ENCHANTMENT_COUNT; b++)
+                COMPATIBLE[a][b] = isCompatible(a, b);
+        }
+        int[] candidates = new int[ENCHANTMENT_COUNT];
+        for (int power = 0; power <= MAX_POWER; power++) {
+            int count = getCandidates(power, candidates);
+            CANDIDATE_ENCHANTMENTS[power] = Arrays.copyOf(candidates, count);
+            CANDIDATE_WEIGHTS[power] = new int[count];
+            for (int i = 0; i < count; i++)
+                CANDIDATE_WEIGHTS[power][i] = WEIGHTS[candidates[i] >>> 8];
+        }
+    }
+
+    private EnchantingFixtures() {
+    }
+
+    static int encode(int id, int level) {
+        return (id << 8) | level;
+    }
+
+    /**
+     * Creates an {@link EnchantmentOutcomeTable} for the fixture item, with the candidates at each power worked out
+     * the same way as EnchantmentHelper.getHighestApplicableEnchantmentsAtPower. The tables share their candidates,
+     * which they never modify, so creating one is cheap
+     */
+    static EnchantmentOutcomeTable createOutcomeTable() {
+        return new EnchantmentOutcomeTable(ENCHANTABILITY, false, COMPATIBLE, CANDIDATE_ENCHANTMENTS,
+                CANDIDATE_WEIGHTS);
+    }
+
+    // the highest level of each enchantment available at the given power
+    private static int getCandidates(int power, int[] candidates) {
+        int count = 0;
+        for (int id = 0; id < ENCHANTMENT_COUNT; id++) {
+            for (int level = MAX_LEVELS[id]; level >= 1; level--) {
+                if (power >= getMinPower(id, level) && power <= getMaxPower(id, level)) {
+                    candidates[count++] = encode(id, level);
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int getMinPower(int id, int level) {
+        return MIN_POWER_BASE[id] + (level - 1) * MIN_POWER_PER_LEVEL[id];
+    }
+
+    private static int getMaxPower(int id, int level) {
+        if (MAX_POWER_ABOVE_MIN[id] == -1)
+            return 1 + level * 10 + 50;
+        return getMinPower(id, level) + MAX_POWER_ABOVE_MIN[id];
+    }
+
+    private static boolean isCompatible(int a, int b) {
+        return a != b && (GROUPS[a] == 0 || GROUPS[a] != GROUPS[b]);
+    }
+
+}
@@ -0,0 +1,55 @@
+package net.earthcomputer.clientcommands.features;
+
+import net.earthcomputer.clientcommands.command.arguments.ItemAndEnchantmentsPredicateArgumentType.ItemAndEnchantmentsPredicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the /cenchant search, {@link EnchantmentCracker#findEnchantmentManipulations}: for every number of item
+ * throws within the horizon, jump the player RNG to the XP seed it would give, then check every bookshelf count and slot
+ * against the wanted enchantments with {@link ItemAndEnchantmentsPredicate#test(int[], int, int)}.
+ *
+ * The search gets its {@link EnchantmentOutcomeTable}s from {@link EnchantingFixtures} rather than the registries. It
+ * splits the horizon into chunks on the common fork-join pool as usual, so the result depends on the number of cores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EnchantmentSearchBenchmark {
+
+    private static final long PLAYER_SEED = 0x123456789abL;
+
+    // looting III with both sharpness and smite, which can't happen, so the whole horizon gets searched as it would be
+    // for a request without a solution. Anything possible turns up within a few throws and ends the search early
+    private static final ItemAndEnchantmentsPredicate WANTED = new ItemAndEnchantmentsPredicate(null, new int[] {
+            EnchantingFixtures.encode(EnchantingFixtures.LOOTING, 3),
+            EnchantingFixtures.encode(EnchantingFixtures.SHARPNESS, 0),
+            EnchantingFixtures.encode(EnchantingFixtures.SMITE, 0)
+    }, new int[0]);
+
+    @Param({"100", "1000"})
+    public int horizon;
+
+    @Benchmark
+    public List<EnchantmentCracker.EnchantManipulationPlan> search() {
+        EnchantmentCracker.EnchantSearchOptions options = new EnchantmentCracker.EnchantSearchOptions(horizon, 0, 15,
+                0, 1);
+        return EnchantmentCracker.findEnchantmentManipulations(CrackingService.createDetachedJob("benchmark"),
+                PLAYER_SEED, true, EnchantingFixtures::createOutcomeTable, WANTED, options);
+    }
+
+}
@@ -0,0 +1,60 @@
+package net.earthcomputer.clientcommands.features;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks cracking the player RNG from a run of cracked XP seeds, the way addPlayerRNGInfo does it: the first XP seed
+ * fills {@link PlayerSeedCandidates} with all 2^16 states that could have drawn it, and each later one is copied into
+ * the other buffer, stepped and filtered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlayerSeedCandidatesBenchmark {
+
+    private static final int ENCHANTMENTS = 3;
+
+    private final int[] xpSeeds = new int[ENCHANTMENTS];
+
+    private PlayerSeedCandidates possibleSeeds = new PlayerSeedCandidates();
+    private PlayerSeedCandidates workingSeeds = new PlayerSeedCandidates();
+
+    @Setup
+    public void setup() {
+        LCGRandom playerRand = new LCGRandom(12345);
+        for (int i = 0; i < ENCHANTMENTS; i++)
+            xpSeeds[i] = playerRand.nextInt();
+    }
+
+    @Benchmark
+    public int crackPlayerSeed() {
+        possibleSeeds.clear();
+        for (int xpSeed : xpSeeds) {
+            if (possibleSeeds.isEmpty()) {
+                workingSeeds.fill(xpSeed);
+            } else {
+                workingSeeds.copyFrom(possibleSeeds);
+                workingSeeds.advanceAndRetain(xpSeed);
+            }
+            PlayerSeedCandidates swap = possibleSeeds;
+            possibleSeeds = workingSeeds;
+            workingSeeds = swap;
+        }
+        return possibleSeeds.size();
+    }
+
+}
@@ -0,0 +1,111 @@
+package net.earthcomputer.clientcommands.features;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one full XP seed crack (filling the candidates, then filtering them with a few observations) using the old
+ * boxed HashSet against {@link XPSeedCandidates}, both serially and split across the fork-join pool the way
+ * addEnchantmentSeedInfo does it. Run with the gc profiler (enabled by default in build.gradle) to see the allocation
+ * rate of each.
+ *
+ * The observations are the levels from an {@link EnchantmentOutcomeTable} made by {@link EnchantingFixtures}, so that
+ * the cost per seed is realistic without needing the game registries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XPSeedCandidatesBenchmark {
+
+    private static final int[] OBSERVED_POWERS = {15, 7, 0, 11};
+
+    private int actualXPSeed;
+    private int[][] observedLevels;
+
+    private final XPSeedCandidates candidates = new XPSeedCandidates();
+
+    @Setup
+    public void setup() {
+        actualXPSeed = new Random(12345).nextInt();
+        observedLevels = new int[OBSERVED_POWERS.length][3];
+        EnchantmentOutcomeTable outcomes = EnchantingFixtures.createOutcomeTable();
+        outcomes.setXPSeed(actualXPSeed);
+        for (int i = 0; i < OBSERVED_POWERS.length; i++)
+            outcomes.calculateLevels(OBSERVED_POWERS[i], observedLevels[i]);
+    }
+
+    @Benchmark
+    public int boxedHashSet() {
+        Set<Integer> possibleXPSeeds = new HashSet<>(1 << 20);
+        int serverReportedXPSeed = actualXPSeed & 0x0000fff0;
+        for (int highBits = 0; highBits < 65536; highBits++) {
+            for (int low4Bits = 0; low4Bits < 16; low4Bits++) {
+                possibleXPSeeds.add((highBits << 16) | serverReportedXPSeed | low4Bits);
+            }
+        }
+
+        EnchantmentOutcomeTable outcomes = EnchantingFixtures.createOutcomeTable();
+        int[] levels = new int[3];
+        for (int i = 0; i < OBSERVED_POWERS.length; i++) {
+            Iterator<Integer> xpSeedItr = possibleXPSeeds.iterator();
+            while (xpSeedItr.hasNext()) {
+                if (!matches(outcomes, levels, xpSeedItr.next(), i))
+                    xpSeedItr.remove();
+            }
+        }
+        return possibleXPSeeds.size();
+    }
+
+    @Benchmark
+    public int primitiveCandidates() {
+        candidates.fill(actualXPSeed);
+
+        EnchantmentOutcomeTable outcomes = EnchantingFixtures.createOutcomeTable();
+        int[] levels = new int[3];
+        for (int i = 0; i < OBSERVED_POWERS.length; i++) {
+            int observation = i;
+            candidates.retainIf(xpSeed -> matches(outcomes, levels, xpSeed, observation));
+        }
+        return candidates.size();
+    }
+
+    @Benchmark
+    public int primitiveCandidatesParallel() {
+        candidates.fill(actualXPSeed);
+
+        for (int i = 0; i < OBSERVED_POWERS.length; i++) {
+            int observation = i;
+            candidates.retainIfParallel(() -> {
+                EnchantmentOutcomeTable outcomes = EnchantingFixtures.createOutcomeTable();
+                int[] levels = new int[3];
+                return xpSeed -> matches(outcomes, levels, xpSeed, observation);
+            });
+        }
+        return candidates.size();
+    }
+
+    private boolean matches(EnchantmentOutcomeTable outcomes, int[] levels, int xpSeed, int observation) {
+        outcomes.setXPSeed(xpSeed);
+        outcomes.calculateLevels(OBSERVED_POWERS[observation], levels);
+        return Arrays.equals(levels, observedLevels[observation]);
+    }
+
+}
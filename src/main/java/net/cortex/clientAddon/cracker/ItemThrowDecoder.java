@@ -0,0 +1,211 @@
+package net.cortex.clientAddon.cracker;
+
+import net.earthcomputer.clientcommands.features.LCGRandom;
+
+/**
+ * Works out what an item's spawn velocity says about the player's RNG.
+ *
+ * When looking straight down, PlayerEntity.dropItem gives the item a horizontal velocity of
+ * <code>(Math.cos((double) k) * (double) l, Math.sin((double) k) * (double) l)</code>, where
+ * <code>k = nextFloat() * 6.2831855F</code> and <code>l = 0.02F * nextFloat()</code>. The part of the velocity which
+ * depends on where the player is looking is multiplied by the cosine of the pitch, which is 1.2e-16 when looking
+ * straight down. The spawn packet truncates each component to a multiple of 1/8000.
+ *
+ * Rather than guessing a fixed number of bits from atan2, every angle and magnitude which could have produced the
+ * packet is accounted for, which gives an interval for each of the two LCG states behind the two floats. The angles
+ * are tried at the 65536 steps of the MathHelper sine table, and the arc found is widened by a step either way to
+ * cover the angles in between. Fast throws pin the angle down to ~10 bits, slow ones give little angle information
+ * but a tight magnitude.
+ *
+ * {@link #predictVelocity(long)} uses the same arithmetic as vanilla, but a prediction can still be a unit out:
+ * Math.cos and Math.sin are allowed to differ in the last bit between JVMs, and the pitch term above isn't quite 0,
+ * so a velocity which lands right on a multiple of 1/8000 can be truncated either way. Predictions should be
+ * compared to the packet with a tolerance of 1.
+ *
+ * The vertical velocity is the difference of two more floats, which isn't an interval on a single LCG state, so it
+ * isn't used.
+ */
+public class ItemThrowDecoder
+{
+    private static final int TABLE_SIZE = 65536;
+    private static final float[] SINE_TABLE = new float[TABLE_SIZE];
+    static
+    {
+        // same as MathHelper
+        for (int i = 0; i < TABLE_SIZE; i++)
+            SINE_TABLE[i] = (float) Math.sin(i * Math.PI * 2.0 / 65536.0);
+    }
+
+    private static final double PACKET_SCALE = 8000;
+    private static final double MAX_MAGNITUDE = 0.02;
+    // rounding of the trig and the products, with plenty to spare
+    private static final double RELATIVE_ERROR = 1e-6;
+
+    /**
+     * The interval of the LCG state behind the angle float, or null if the angle isn't constrained at all
+     */
+    public final long[] angleBounds;
+    /**
+     * The interval of the LCG state behind the magnitude float
+     */
+    public final long[] magnitudeBounds;
+
+    private ItemThrowDecoder(long[] angleBounds, long[] magnitudeBounds)
+    {
+        this.angleBounds = angleBounds;
+        this.magnitudeBounds = magnitudeBounds;
+    }
+
+    /**
+     * Decodes the velocity from an item spawn packet, in the packet's units of 1/8000 blocks per tick. Returns null if
+     * no throw could have produced the velocity.
+     *
+     * The angle bounds may start below 0 when the possible angles wrap around, so they should be treated as modulo
+     * 2^48
+     */
+    public static ItemThrowDecoder decode(int velocityX, int velocityZ)
+    {
+        double[] xRange = getVelocityRange(velocityX);
+        double[] zRange = getVelocityRange(velocityZ);
+
+        boolean[] possible = new boolean[TABLE_SIZE];
+        int possibleCount = 0;
+        double[] magnitudeRange = new double[2];
+        for (int index = 0; index < TABLE_SIZE; index++)
+        {
+            float sin = SINE_TABLE[index];
+            // the real angle lies between table steps, so its cos may be closer to the next step's
+            for (int cosOffset = 0; cosOffset <= 1; cosOffset++)
+            {
+                float cos = SINE_TABLE[(index + TABLE_SIZE / 4 + cosOffset) & (TABLE_SIZE - 1)];
+                magnitudeRange[0] = 0;
+                magnitudeRange[1] = MAX_MAGNITUDE;
+                if (!intersectMagnitude(magnitudeRange, cos, xRange) || !intersectMagnitude(magnitudeRange, sin, zRange))
+                    continue;
+                if (!possible[index])
+                {
+                    possible[index] = true;
+                    possibleCount++;
+                }
+            }
+        }
+        if (possibleCount == 0)
+            return null;
+
+        long[] angleBounds = null;
+        if (possibleCount < TABLE_SIZE)
+        {
+            // the possible indices form an arc, which starts just after the longest run of impossible indices
+            int bestGapEnd = 0;
+            int bestGapLength = 0;
+            int gapLength = 0;
+            for (int i = 0; i < 2 * TABLE_SIZE; i++)
+            {
+                if (possible[i & (TABLE_SIZE - 1)])
+                {
+                    gapLength = 0;
+                }
+                else if (++gapLength > bestGapLength && gapLength <= TABLE_SIZE)
+                {
+                    bestGapLength = gapLength;
+                    bestGapEnd = i & (TABLE_SIZE - 1);
+                }
+            }
+            long start = bestGapEnd + 1;
+            long end = start + (TABLE_SIZE - bestGapLength) - 1;
+            if (end >= TABLE_SIZE)
+            {
+                start -= TABLE_SIZE;
+                end -= TABLE_SIZE;
+            }
+            // the angle lies within a table step of the arc, and the float is the top 24 bits of the state
+            angleBounds = new long[] {(start - 1) << 32, ((end + 2) << 32) - 1};
+            if (angleBounds[1] - angleBounds[0] >= LCGRandom.MASK)
+                angleBounds = null;
+        }
+
+        // the magnitude is the length of the velocity, since Math.cos and Math.sin are accurate enough for
+        // cos^2 + sin^2 = 1 to hold to within a rounding error
+        double minMagnitude = Math.hypot(getClosestToZero(xRange), getClosestToZero(zRange));
+        double maxMagnitude = Math.min(MAX_MAGNITUDE,
+                Math.hypot(getFurthestFromZero(xRange), getFurthestFromZero(zRange)));
+        double minFloat = minMagnitude / MAX_MAGNITUDE * (1 - RELATIVE_ERROR);
+        double maxFloat = maxMagnitude / MAX_MAGNITUDE * (1 + RELATIVE_ERROR);
+        long lowerBound = Math.max(0, ((long) Math.floor(minFloat * (1 << 24)) - 1) << 24);
+        long upperBound = Math.min(LCGRandom.MASK, (((long) Math.ceil(maxFloat * (1 << 24)) + 2) << 24) - 1);
+        return new ItemThrowDecoder(angleBounds, new long[] {lowerBound, upperBound});
+    }
+
+    // the range of velocities which are truncated to the given packet value
+    private static double[] getVelocityRange(int packetValue)
+    {
+        double lower = packetValue > 0 ? packetValue : packetValue - 1;
+        double upper = packetValue < 0 ? packetValue : packetValue + 1;
+        return new double[] {lower / PACKET_SCALE, upper / PACKET_SCALE};
+    }
+
+    private static double getClosestToZero(double[] range)
+    {
+        if (range[0] > 0)
+            return range[0];
+        return range[1] < 0 ? range[1] : 0;
+    }
+
+    private static double getFurthestFromZero(double[] range)
+    {
+        return Math.max(-range[0], range[1]);
+    }
+
+    // narrows down the magnitude range given that trig * magnitude lies in the velocity range
+    private static boolean intersectMagnitude(double[] magnitudeRange, float trig, double[] velocityRange)
+    {
+        double min = velocityRange[0] * (1 + (velocityRange[0] < 0 ? RELATIVE_ERROR : -RELATIVE_ERROR));
+        double max = velocityRange[1] * (1 + (velocityRange[1] > 0 ? RELATIVE_ERROR : -RELATIVE_ERROR));
+        if (trig == 0)
+            return min <= 0 && max >= 0;
+        double a = min / trig;
+        double b = max / trig;
+        magnitudeRange[0] = Math.max(magnitudeRange[0], Math.min(a, b));
+        magnitudeRange[1] = Math.min(magnitudeRange[1], Math.max(a, b));
+        return magnitudeRange[0] <= magnitudeRange[1];
+    }
+
+    /**
+     * Simulates a throw the other way round, given the LCG state behind the angle float. Returns the velocity the spawn
+     * packet would contain, packed as x in the high half and z in the low half. May be out by 1, see above
+     */
+    public static long predictVelocity(long angleState)
+    {
+        float angle = nextFloat(angleState) * 6.2831855F;
+        float magnitude = 0.02F * nextFloat(LCGRandom.step(angleState));
+        int velocityX = (int) (Math.cos(angle) * (double) magnitude * PACKET_SCALE);
+        int velocityZ = (int) (Math.sin(angle) * (double) magnitude * PACKET_SCALE);
+        return ((long) velocityX << 32) | (velocityZ & 0xffffffffL);
+    }
+
+    public static int getPredictedVelocityX(long packedVelocity)
+    {
+        return (int) (packedVelocity >> 32);
+    }
+
+    public static int getPredictedVelocityZ(long packedVelocity)
+    {
+        return (int) packedVelocity;
+    }
+
+    // what Random.nextFloat would return if its seed had just been updated to this state
+    private static float nextFloat(long state)
+    {
+        return (int) (state >>> 24) / (float) (1 << 24);
+    }
+
+    /**
+     * Estimates how many bits of the LCG state an interval pins down
+     */
+    public static double getInformation(long[] bounds)
+    {
+        if (bounds == null)
+            return 0;
+        return 48 - Math.log(bounds[1] - bounds[0] + 1) / Math.log(2);
+    }
+}
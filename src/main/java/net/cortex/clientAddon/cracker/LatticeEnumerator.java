@@ -0,0 +1,214 @@
+package net.cortex.clientAddon.cracker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Enumerates the lattice points P + sum(c[i] * basis[i]) with mins[i] <= c[i] <= maxs[i] which lie inside the box
+ * lowerBounds <= v <= upperBounds, in the same order as an odometer walk with c[0] turning fastest.
+ *
+ * The walk updates the current point in place, so the only allocations are for the points that are found. The
+ * innermost coordinate isn't walked at all: the point moves along a line as c[0] changes, so the range of c[0] inside
+ * the box can be solved for exactly, and the rest of the line is skipped as soon as one dimension rules it out.
+ *
+ * The outer coordinates are treated as one mixed-radix counter, which is split into contiguous ranges and walked on
+ * the fork-join pool when the box is big enough. The results are joined back together in order.
+ */
+public class LatticeEnumerator
+{
+    // below this many outer steps it's not worth waking up the fork-join pool
+    private static final long PARALLEL_THRESHOLD = 1 << 12;
+
+    private final long[][] basis;
+    private final long[] origin;
+    private final long[] mins;
+    private final long[] maxs;
+    private final long[] lowerBounds;
+    private final long[] upperBounds;
+    private final int n;
+    // wraps[i] = basis[i] * (maxs[i] - mins[i] + 1), what to subtract when c[i] wraps around
+    private final long[][] wraps;
+    private final long outerVolume;
+
+    public LatticeEnumerator(long[][] basis, long[] origin, long[] mins, long[] maxs, long[] lowerBounds, long[] upperBounds)
+    {
+        this.basis = basis;
+        this.origin = origin;
+        this.mins = mins;
+        this.maxs = maxs;
+        this.lowerBounds = lowerBounds;
+        this.upperBounds = upperBounds;
+        this.n = mins.length;
+
+        wraps = new long[n][n];
+        long volume = 1;
+        for (int i = 0; i < n; i++)
+        {
+            long range = maxs[i] - mins[i] + 1;
+            if (range <= 0)
+            {
+                volume = 0;
+                break;
+            }
+            if (i != 0)
+                volume = multiplySaturated(volume, range);
+            for (int j = 0; j < n; j++)
+                wraps[i][j] = basis[i][j] * range;
+        }
+        outerVolume = volume;
+    }
+
+    /**
+     * The number of lines along the innermost coordinate which will be scanned
+     */
+    public long getOuterVolume()
+    {
+        return outerVolume;
+    }
+
+    public List<long[]> enumerate()
+    {
+        if (outerVolume == 0)
+            return new ArrayList<>();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (outerVolume < PARALLEL_THRESHOLD || pool.getParallelism() <= 1)
+        {
+            List<long[]> results = new ArrayList<>();
+            walk(0, outerVolume, results);
+            return results;
+        }
+        long chunkSize = Math.max(PARALLEL_THRESHOLD / 4, outerVolume / (pool.getParallelism() * 4L));
+        return pool.invoke(new WalkTask(0, outerVolume, chunkSize));
+    }
+
+    private void walk(long from, long to, List<long[]> results)
+    {
+        long[] components = new long[n];
+        long[] v = origin.clone();
+
+        // decode the starting value of the outer counter, c[1] is the least significant digit
+        components[0] = mins[0];
+        long remaining = from;
+        for (int i = 1; i < n; i++)
+        {
+            long range = maxs[i] - mins[i] + 1;
+            components[i] = mins[i] + remaining % range;
+            remaining /= range;
+        }
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                v[j] += components[i] * basis[i][j];
+
+        for (long index = from; index < to; index++)
+        {
+            scanLine(v, results);
+            if (!nextOuterPoint(components, v))
+                return;
+        }
+    }
+
+    /**
+     * Finds the points v + t * basis[0] with 0 <= t <= maxs[0] - mins[0] inside the box. v is the point with
+     * c[0] = mins[0]
+     */
+    private void scanLine(long[] v, List<long[]> results)
+    {
+        long[] direction = basis[0];
+        long tMin = 0;
+        long tMax = maxs[0] - mins[0];
+        for (int i = 0; i < n; i++)
+        {
+            long a = direction[i];
+            long lower = lowerBounds[i] - v[i];
+            long upper = upperBounds[i] - v[i];
+            if (a == 0)
+            {
+                if (lower > 0 || upper < 0)
+                    return;
+            }
+            else if (a > 0)
+            {
+                tMin = Math.max(tMin, -Math.floorDiv(-lower, a));
+                tMax = Math.min(tMax, Math.floorDiv(upper, a));
+            }
+            else
+            {
+                tMin = Math.max(tMin, -Math.floorDiv(-upper, a));
+                tMax = Math.min(tMax, Math.floorDiv(lower, a));
+            }
+            if (tMin > tMax)
+                return;
+        }
+
+        for (long t = tMin; t <= tMax; t++)
+        {
+            long[] point = new long[n];
+            for (int i = 0; i < n; i++)
+                point[i] = v[i] + t * direction[i];
+            results.add(point);
+        }
+    }
+
+    //mutates components and v, leaving c[0] alone
+    private boolean nextOuterPoint(long[] components, long[] v)
+    {
+        for (int index = 1; index < n; index++)
+        {
+            long[] direction = basis[index];
+            if (++components[index] > maxs[index])
+            {
+                components[index] = mins[index];
+                long[] wrap = wraps[index];
+                for (int i = 0; i < n; i++)
+                    v[i] += direction[i] - wrap[i];
+            }
+            else
+            {
+                for (int i = 0; i < n; i++)
+                    v[i] += direction[i];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long multiplySaturated(long a, long b)
+    {
+        if (a > Long.MAX_VALUE / b)
+            return Long.MAX_VALUE;
+        return a * b;
+    }
+
+    private class WalkTask extends RecursiveTask<List<long[]>>
+    {
+        private final long from;
+        private final long to;
+        private final long chunkSize;
+
+        WalkTask(long from, long to, long chunkSize)
+        {
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected List<long[]> compute()
+        {
+            if (to - from <= chunkSize)
+            {
+                List<long[]> results = new ArrayList<>();
+                walk(from, to, results);
+                return results;
+            }
+            long mid = from + (to - from) / 2;
+            WalkTask right = new WalkTask(mid, to, chunkSize);
+            right.fork();
+            List<long[]> results = new WalkTask(from, mid, chunkSize).compute();
+            results.addAll(right.join());
+            return results;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package net.cortex.clientAddon.cracker;
+
+import java.math.BigInteger;
+
+/**
+ * LLL lattice basis reduction using only integer arithmetic (the integral LLL algorithm, Cohen 2.6.7), so the result
+ * doesn't depend on floating point rounding. The basis vectors are the rows of the matrix.
+ */
+public class LatticeReducer
+{
+    // the Lovasz constant delta = DELTA_NUM / DELTA_DEN
+    private static final BigInteger DELTA_NUM = BigInteger.valueOf(99);
+    private static final BigInteger DELTA_DEN = BigInteger.valueOf(100);
+
+    private final BigInteger[][] b;
+    private final BigInteger[][] lambda;
+    // d[i + 1] is the squared volume of the first i + 1 vectors, d[0] = 1
+    private final BigInteger[] d;
+    private final int n;
+
+    private LatticeReducer(BigInteger[][] basis)
+    {
+        this.n = basis.length;
+        this.b = new BigInteger[n][];
+        for (int i = 0; i < n; i++)
+            this.b[i] = basis[i].clone();
+        this.lambda = new BigInteger[n][n];
+        this.d = new BigInteger[n + 1];
+    }
+
+    /**
+     * Returns an LLL-reduced basis of the lattice spanned by the rows of the given basis, which must be linearly
+     * independent
+     */
+    public static BigInteger[][] reduce(BigInteger[][] basis)
+    {
+        LatticeReducer reducer = new LatticeReducer(basis);
+        reducer.reduce();
+        return reducer.b;
+    }
+
+    private void reduce()
+    {
+        d[0] = BigInteger.ONE;
+        d[1] = dot(b[0], b[0]);
+        int k = 1;
+        int kmax = 0;
+        while (k < n)
+        {
+            if (k > kmax)
+            {
+                kmax = k;
+                for (int j = 0; j <= k; j++)
+                {
+                    BigInteger u = dot(b[k], b[j]);
+                    for (int i = 0; i < j; i++)
+                        u = d[i + 1].multiply(u).subtract(lambda[k][i].multiply(lambda[j][i])).divide(d[i]);
+                    if (j < k)
+                        lambda[k][j] = u;
+                    else if (u.signum() == 0)
+                        throw new IllegalArgumentException("Basis vectors are not linearly independent");
+                    else
+                        d[k + 1] = u;
+                }
+            }
+
+            reduceVector(k, k - 1);
+            // Lovasz condition: d[k+1] d[k-1] >= delta d[k]^2 - lambda[k][k-1]^2
+            BigInteger lhs = DELTA_DEN.multiply(d[k + 1].multiply(d[k - 1]));
+            BigInteger rhs = DELTA_NUM.multiply(d[k].multiply(d[k])).subtract(DELTA_DEN.multiply(lambda[k][k - 1].pow(2)));
+            if (lhs.compareTo(rhs) < 0)
+            {
+                swap(k, kmax);
+                k = Math.max(1, k - 1);
+            }
+            else
+            {
+                for (int l = k - 2; l >= 0; l--)
+                    reduceVector(k, l);
+                k++;
+            }
+        }
+    }
+
+    private void reduceVector(int k, int l)
+    {
+        if (lambda[k][l].abs().shiftLeft(1).compareTo(d[l + 1]) <= 0)
+            return;
+        // q = round(lambda[k][l] / d[l+1])
+        BigInteger q = floorDiv(lambda[k][l].shiftLeft(1).add(d[l + 1]), d[l + 1].shiftLeft(1));
+        for (int i = 0; i < n; i++)
+            b[k][i] = b[k][i].subtract(q.multiply(b[l][i]));
+        lambda[k][l] = lambda[k][l].subtract(q.multiply(d[l + 1]));
+        for (int i = 0; i < l; i++)
+            lambda[k][i] = lambda[k][i].subtract(q.multiply(lambda[l][i]));
+    }
+
+    private void swap(int k, int kmax)
+    {
+        BigInteger[] tmp = b[k];
+        b[k] = b[k - 1];
+        b[k - 1] = tmp;
+        for (int j = 0; j < k - 1; j++)
+        {
+            BigInteger t = lambda[k][j];
+            lambda[k][j] = lambda[k - 1][j];
+            lambda[k - 1][j] = t;
+        }
+        BigInteger lam = lambda[k][k - 1];
+        BigInteger newD = d[k - 1].multiply(d[k + 1]).add(lam.pow(2)).divide(d[k]);
+        for (int i = k + 1; i <= kmax; i++)
+        {
+            BigInteger t = lambda[i][k];
+            lambda[i][k] = d[k + 1].multiply(lambda[i][k - 1]).subtract(lam.multiply(t)).divide(d[k]);
+            lambda[i][k - 1] = newD.multiply(t).add(lam.multiply(lambda[i][k])).divide(d[k + 1]);
+        }
+        d[k] = newD;
+    }
+
+    private static BigInteger dot(BigInteger[] a, BigInteger[] b)
+    {
+        BigInteger sum = BigInteger.ZERO;
+        for (int i = 0; i < a.length; i++)
+            sum = sum.add(a[i].multiply(b[i]));
+        return sum;
+    }
+
+    static BigInteger floorDiv(BigInteger a, BigInteger b)
+    {
+        BigInteger[] qr = a.divideAndRemainder(b);
+        if (qr[1].signum() != 0 && (qr[1].signum() != b.signum()))
+            return qr[0].subtract(BigInteger.ONE);
+        return qr[0];
+    }
+}
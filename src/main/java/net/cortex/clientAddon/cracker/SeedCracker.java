@@ -1,6 +1,11 @@
 package net.cortex.clientAddon.cracker;
 
+import net.earthcomputer.clientcommands.features.CrackMetrics;
+import net.earthcomputer.clientcommands.features.CrackingService;
 import net.earthcomputer.clientcommands.features.EnchantmentCracker;
+import net.earthcomputer.clientcommands.features.LCGRandom;
+import net.earthcomputer.clientcommands.task.LongTask;
+import net.earthcomputer.clientcommands.task.TaskManager;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.network.packet.EntitySpawnS2CPacket;
@@ -10,50 +15,219 @@ import net.minecraft.server.network.packet.PlayerMoveC2SPacket;
 import net.minecraft.text.TranslatableText;
 import net.minecraft.util.Formatting;
 
-import java.util.Random;
-import static net.earthcomputer.clientcommands.features.EnchantmentCracker.MULTIPLIER;
+import java.util.Arrays;
 
 public class SeedCracker {
     public interface OnCrack {void callback(long seed); }
 
 
+    //if the seed still isn't unique after this many items, something went wrong, so start again
+    public static final int MAX_ITEMS=20;
+    //there are always several possible seeds before the samples pin down this many bits
+    public static final int CRACK_INFORMATION=48;
+    //each item gives up to two samples, one for the angle and one for the magnitude of its velocity
+    private static final int MAX_SAMPLES=2*MAX_ITEMS;
+
     public static OnCrack callback;
-    public static long[] bits=new long[20];
-    public static int expectedItems=0;
+    public static int[] sampleSteps=new int[MAX_SAMPLES];
+    public static long[] sampleLowerBounds=new long[MAX_SAMPLES];
+    public static long[] sampleUpperBounds=new long[MAX_SAMPLES];
+    public static int sampleCount=0;
+    public static int itemsSeen=0;
+    //the velocity from each of our items' spawn packets, in the packet's units
+    private static final int[] itemVelocitiesX=new int[MAX_ITEMS];
+    private static final int[] itemVelocitiesZ=new int[MAX_ITEMS];
+    //once the lattice has narrowed things down, the possible LCG states behind the first item's angle
+    private static long[] candidates=null;
+    private static int throwLimit=MAX_ITEMS;
+    public static int itemsThrown=0;
+    public static int expectedItems=0;//thrown, but we haven't seen the spawn packet yet
+    private static int ignoredItems=0;//thrown before the crack was restarted
     public static boolean cracking=false;
+    private static ThrowItemsTask throwTask=null;
+    private static CrackingService.Job<long[]> crackJob=null;
+
+    //throws one item per tick until the seed is cracked, rather than throwing them all up front
+    private static class ThrowItemsTask extends LongTask {
+        @Override
+        public void initialize() {
+            ClientPlayerEntity player = MinecraftClient.getInstance().player;
+            player.setPositionAndAngles(player.x, player.y, player.z, 0, 90);
+            MinecraftClient.getInstance().getNetworkHandler().sendPacket(new PlayerMoveC2SPacket.LookOnly(0, 90, true)); // point to correct location
+        }
+
+        @Override
+        public boolean condition() {
+            return throwTask == this && cracking && itemsThrown < throwLimit;
+        }
+
+        @Override
+        public void increment() {
+        }
 
-    //returns True on success or false on failer
-    private static boolean throwItems()
-    {
-        ClientPlayerEntity player = MinecraftClient.getInstance().player;
-        player.setPositionAndAngles(player.x, player.y, player.z, 0, 90);
-        MinecraftClient.getInstance().getNetworkHandler().sendPacket(new PlayerMoveC2SPacket.LookOnly(0, 90, true)); // point to correct location
-        for (int i = 0; i < 20; i++) {
+        @Override
+        public void body() {
             EnchantmentCracker.EnchantManipulationStatus status = EnchantmentCracker.throwItem();
             if (status != EnchantmentCracker.EnchantManipulationStatus.OK && status != EnchantmentCracker.EnchantManipulationStatus.NOT_CRACKED) {
                 MinecraftClient.getInstance().inGameHud.addChatMessage(MessageType.GAME_INFO, new TranslatableText("itemCrack.notEnoughItems").formatted(Formatting.RED));
                 EnchantmentCracker.LOGGER.info("Unable to use rng SeedCracker |not enough items|");
-                return false;
+                CrackMetrics.crackFailed(CrackMetrics.Crack.ITEM_THROW);
+                cracking = false;
+                _break();
+                return;
             }
+            itemsThrown++;
+            expectedItems++;
+            scheduleDelay();
         }
-        return true;
     }
+
+	@SuppressWarnings("unchecked")
 	public static void attemptCrack()
 	{
-		cracking=false;
-		long seed= Lattice_cracker.crack(SeedCracker.bits);
+		double information=getInformation(sampleLowerBounds, sampleUpperBounds, sampleCount);
+		if(information<CRACK_INFORMATION)
+		{
+			showEntropy(CRACK_INFORMATION-information);
+			return;
+		}
+		int[] steps=Arrays.copyOf(sampleSteps, sampleCount);
+		long[] lowerBounds=Arrays.copyOf(sampleLowerBounds, sampleCount);
+		long[] upperBounds=Arrays.copyOf(sampleUpperBounds, sampleCount);
+		//the lattice crack runs on the cracker worker, the result comes back on the client thread. The callback needs
+		//to know which job it came from, which only exists once it has been submitted
+		CrackingService.Job<long[]>[] job=new CrackingService.Job[1];
+		job[0]=CrackingService.submit("itemCrack.job.lattice", j -> crackFirstItemStates(steps, lowerBounds, upperBounds), states -> onLatticeCrackResult(job[0], states));
+		crackJob=job[0];
+		if(crackJob==null)
+		{
+			CrackMetrics.crackFailed(CrackMetrics.Crack.ITEM_THROW);
+			cracking=false;
+			MinecraftClient.getInstance().inGameHud.addChatMessage(MessageType.GAME_INFO, new TranslatableText("enchCrack.manipStatus.busy").formatted(Formatting.RED));
+		}
+	}
+	private static void showEntropy(double entropy)
+	{
+		MinecraftClient.getInstance().inGameHud.addChatMessage(MessageType.GAME_INFO, new TranslatableText("itemCrack.entropy", String.format("%.1f", entropy)));
+	}
+	//cracks the samples, returning the possible LCG states behind the first item's angle
+	public static long[] crackFirstItemStates(int[] steps, long[] lowerBounds, long[] upperBounds)
+	{
+		long[] seeds=Lattice_cracker.crackAll(steps, lowerBounds, upperBounds);
+		//the seeds are the ones after the last sample, wind them back to the first item
+		int lastStep=steps[steps.length-1];
+		long[] states=new long[seeds.length];
+		for(int i=0;i<seeds.length;i++)
+			states[i]=LCGRandom.advance(seeds[i], -(lastStep+1));
+		return states;
+	}
+	private static void onLatticeCrackResult(CrackingService.Job<long[]> job, long[] states)
+	{
+		if(job!=crackJob)//a newer crack has taken over
+			return;
+		crackJob=null;
+		if(!cracking)
+			return;
+		candidates=states;
+		//the lattice only saw the samples worth a dimension, check against everything including later items
+		filterCandidates(0);
+	}
+	private static void filterCandidates(int fromItem)
+	{
+		candidates=retainConsistentCandidates(candidates, fromItem, itemsSeen, itemVelocitiesX, itemVelocitiesZ);
+		CrackMetrics.recordCandidates(CrackMetrics.Crack.ITEM_THROW, candidates.length);
 
-		if(seed==0)//Basicaly if seed is zero it means it failed to try to crack again
+		if(candidates.length==0)//Basicaly if there are no seeds the samples were bad, try to crack again
 		{
 			SeedCracker.crack(SeedCracker.callback);
 			return;
 		}
-		//Else, got a seed
-		
-		Random rand=new Random();
-		rand.setSeed(seed ^ MULTIPLIER);
-		rand.nextFloat();
-		rand.nextFloat();
+		if(candidates.length>1)
+		{
+			showEntropy(Math.log(candidates.length)/Math.log(2));
+			//rather than starting again, throw just enough items to tell the candidates apart
+			throwLimit=Math.min(MAX_ITEMS, itemsSeen+getThrowsToDisambiguate());
+			if(itemsSeen>=throwLimit&&expectedItems==0)
+				SeedCracker.crack(SeedCracker.callback);
+			return;
+		}
+		onSeedFound(candidates[0]);
+	}
+	//drops the candidates which don't reproduce the velocities of the items from the given one on, reusing the array
+	public static long[] retainConsistentCandidates(long[] candidates, int fromItem, int itemsSeen, int[] velocitiesX, int[] velocitiesZ)
+	{
+		int newSize=0;
+		for(long candidate:candidates)
+		{
+			if(isCandidateConsistent(candidate, fromItem, itemsSeen, velocitiesX, velocitiesZ))
+				candidates[newSize++]=candidate;
+		}
+		return Arrays.copyOf(candidates, newSize);
+	}
+	private static boolean isCandidateConsistent(long state, int fromItem, int itemsSeen, int[] velocitiesX, int[] velocitiesZ)
+	{
+		state=advance(state, Lattice_cracker.ITEM_STEPS*fromItem);
+		for(int item=fromItem;item<itemsSeen;item++)
+		{
+			long velocity=ItemThrowDecoder.predictVelocity(state);
+			//the prediction can be a unit out when the velocity lands on a multiple of 1/8000, see ItemThrowDecoder
+			if(Math.abs(ItemThrowDecoder.getPredictedVelocityX(velocity)-velocitiesX[item])>1
+					||Math.abs(ItemThrowDecoder.getPredictedVelocityZ(velocity)-velocitiesZ[item])>1)
+				return false;
+			state=advance(state, Lattice_cracker.ITEM_STEPS);
+		}
+		return true;
+	}
+	//the smallest number of extra items whose velocities will differ between every pair of candidates
+	private static int getThrowsToDisambiguate()
+	{
+		int maxThrows=MAX_ITEMS-itemsSeen;
+		//with this many candidates one throw will thin them out plenty, plan again once it lands
+		if(candidates.length>64||maxThrows<=0)
+			return 1;
+		long[][] predictions=new long[candidates.length][maxThrows];
+		for(int i=0;i<candidates.length;i++)
+		{
+			long state=advance(candidates[i], Lattice_cracker.ITEM_STEPS*itemsSeen);
+			for(int item=0;item<maxThrows;item++)
+			{
+				predictions[i][item]=ItemThrowDecoder.predictVelocity(state);
+				state=advance(state, Lattice_cracker.ITEM_STEPS);
+			}
+		}
+		int throwsNeeded=1;
+		for(int i=0;i<candidates.length;i++)
+		{
+			for(int j=i+1;j<candidates.length;j++)
+			{
+				int item=0;
+				while(item<maxThrows&&!areDistinguishable(predictions[i][item], predictions[j][item]))
+					item++;
+				throwsNeeded=Math.max(throwsNeeded, item+1);
+			}
+		}
+		return Math.min(throwsNeeded, maxThrows);
+	}
+	private static boolean areDistinguishable(long velocityA, long velocityB)
+	{
+		return Math.abs(ItemThrowDecoder.getPredictedVelocityX(velocityA)-ItemThrowDecoder.getPredictedVelocityX(velocityB))>2
+				||Math.abs(ItemThrowDecoder.getPredictedVelocityZ(velocityA)-ItemThrowDecoder.getPredictedVelocityZ(velocityB))>2;
+	}
+	private static long advance(long state, int steps)
+	{
+		return LCGRandom.advance(state, steps);
+	}
+	private static void onSeedFound(long state)
+	{
+		//got a seed, stop throwing
+		cracking=false;
+		CrackMetrics.crackSucceeded(CrackMetrics.Crack.ITEM_THROW);
+		candidates=null;
+		showEntropy(0);
+
+		//move the seed on to after the last item thrown
+		long seed=advance(state, Lattice_cracker.ITEM_STEPS*itemsThrown-1);
+		LCGRandom rand=LCGRandom.withState(seed);
 		//rand.nextFloat();
 		
         /*
@@ -65,29 +239,79 @@ public class SeedCracker {
 			System.out.print(padLeftZeros(Long.toBinaryString((((long) (rand.nextFloat() * ((float) (1 << 24)))) >> (24 - 4))&0xFL), 4)+" \n");
 		}*/
 
-		callback.callback(EnchantmentCracker.getSeed(rand));//extract seed and call callback
+		callback.callback(rand.getState());//extract seed and call callback
 	}
     public static void crack(OnCrack Callback){
         callback=Callback;
-        if(throwItems())
-        {
-            cracking=true;
-            expectedItems=20;
+        if(!cracking)//a restart carries on timing the same crack
+            CrackMetrics.startCrack(CrackMetrics.Crack.ITEM_THROW);
+        if(crackJob!=null)
+            crackJob.cancel();
+        crackJob=null;
+        ignoredItems=cracking ? ignoredItems+expectedItems : 0;
+        sampleCount=0;
+        itemsSeen=0;
+        candidates=null;
+        throwLimit=MAX_ITEMS;
+        itemsThrown=0;
+        expectedItems=0;
+        cracking=true;
+        throwTask=new ThrowItemsTask();
+        TaskManager.addTask("itemCrack", throwTask);
+    }
+
+    /**
+     * Adds the samples from an item's velocity which are worth a dimension in the lattice, returning the new number of
+     * samples. The angle float is drawn first, then the magnitude float
+     */
+    public static int addItemSamples(int item, ItemThrowDecoder decoded, int[] steps, long[] lowerBounds, long[] upperBounds, int sampleCount) {
+        long[][] bounds = {decoded.angleBounds, decoded.magnitudeBounds};
+        for (int i = 0; i < 2; i++) {
+            if (ItemThrowDecoder.getInformation(bounds[i]) < 1)
+                continue;
+            steps[sampleCount] = Lattice_cracker.ITEM_STEPS * item + i;
+            lowerBounds[sampleCount] = bounds[i][0];
+            upperBounds[sampleCount] = bounds[i][1];
+            sampleCount++;
         }
+        return sampleCount;
+    }
+
+    /**
+     * Returns roughly how many bits of the seed the samples pin down
+     */
+    public static double getInformation(long[] lowerBounds, long[] upperBounds, int sampleCount) {
+        double information = 0;
+        for (int i = 0; i < sampleCount; i++)
+            information += ItemThrowDecoder.getInformation(new long[] {lowerBounds[i], upperBounds[i]});
+        return information;
     }
 
     public static void onEntityCreation(EntitySpawnS2CPacket packet) {
-        if (packet.getEntityTypeId() == EntityType.ITEM && SeedCracker.expectedItems>0) {
+        if (packet.getEntityTypeId() == EntityType.ITEM && SeedCracker.cracking && SeedCracker.ignoredItems>0) {
+            SeedCracker.ignoredItems--;
+            return;
+        }
+        if (packet.getEntityTypeId() == EntityType.ITEM && SeedCracker.expectedItems>0 && SeedCracker.cracking) {
 
-            long rand_val = (long) ((Math.atan2(packet.getVelocityz(), packet.getVelocityX()) + Math.PI) / (Math.PI * 2) * ((float) (1 << 24)));
-            long top_bits = rand_val;
-            short value = (short) (((top_bits >> (24 - 4)) ^ 0x8L )&0xFL);//INSTEAD OF ^0x8L MAYBE DO +math.pi OR SOMETHING ELSE
-            SeedCracker.bits[20-SeedCracker.expectedItems]=(long)value;//could be improved
+            int velocityX = (int) Math.round(packet.getVelocityX() * 8000);
+            int velocityZ = (int) Math.round(packet.getVelocityz() * 8000);
+            ItemThrowDecoder decoded = ItemThrowDecoder.decode(velocityX, velocityZ);
+            if (decoded == null)//too fast to be one of our items
+                return;
+            int item = SeedCracker.itemsSeen++;
+            CrackMetrics.addSample(CrackMetrics.Crack.ITEM_THROW);
             SeedCracker.expectedItems--;
-        }
-        if(SeedCracker.expectedItems==0&&SeedCracker.cracking)//if its the last item
-        {
-            SeedCracker.attemptCrack();
+            itemVelocitiesX[item] = velocityX;
+            itemVelocitiesZ[item] = velocityZ;
+            if (candidates != null) {//already down to a few seeds, just check them against this item
+                filterCandidates(item);
+                return;
+            }
+            SeedCracker.sampleCount = addItemSamples(item, decoded, sampleSteps, sampleLowerBounds, sampleUpperBounds, SeedCracker.sampleCount);
+            //a crack whose result hasn't been handled yet will check its candidates against this item too
+            if(crackJob==null||crackJob.isCompleted())
+                SeedCracker.attemptCrack();
         }
         /*
         else
@@ -31,6 +31,7 @@ public class ClientCommands implements ClientModInitializer {
         CEnchantCommand.register(dispatcher);
 
         CrackRNGCommand.register(dispatcher);
+        CrackStatsCommand.register(dispatcher);
         
         if (MinecraftClient.getInstance().isIntegratedServerRunning()) {
             CheatCrackRNGCommand.register(dispatcher);
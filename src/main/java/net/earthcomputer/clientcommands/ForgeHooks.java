@@ -5,8 +5,9 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 public class ForgeHooks {
 
@@ -34,20 +35,33 @@ public class ForgeHooks {
         return world.getBlockState(pos).getBlock() == Blocks.BOOKSHELF ? 1 : 0;
     }
 
+    /**
+     * Calls into Forge through method handles, which are looked up once when the class is loaded. Since they are held
+     * in static final fields and called with invokeExact, the JIT can inline through them like a direct call, with no
+     * boxing of the arguments or the result.
+     */
     private static class ForgeImpl extends ForgeHooks {
-        static Class<?> clsForgeEventFactory = getClass("net.minecraftforge.event.ForgeEventFactory");
-        static Class<?> clsForgeHooks = getClass("net.minecraftforge.common.ForgeHooks");
-        static Method mthForgeEventFactory_onEnchantmentLevelSet = getMethod(clsForgeEventFactory, "onEnchantmentLevelSet", World.class, BlockPos.class, int.class, int.class, ItemStack.class, int.class);
-        static Method mthForgeHooks_getEnchantPower = getMethod(clsForgeHooks, "getEnchantPower", World.class, BlockPos.class);
+        static final Class<?> clsForgeEventFactory = getClass("net.minecraftforge.event.ForgeEventFactory");
+        static final Class<?> clsForgeHooks = getClass("net.minecraftforge.common.ForgeHooks");
+        static final MethodHandle mthForgeEventFactory_onEnchantmentLevelSet = getMethod(clsForgeEventFactory, "onEnchantmentLevelSet", int.class, World.class, BlockPos.class, int.class, int.class, ItemStack.class, int.class);
+        static final MethodHandle mthForgeHooks_getEnchantPower = getMethod(clsForgeHooks, "getEnchantPower", int.class, World.class, BlockPos.class);
 
         @Override
         public int ForgeEventFactory_onEnchantmentLevelSet(World world, BlockPos tablePos, int slot, int power, ItemStack itemToEnchant, int level) {
-            return (Integer) invokeMethod(mthForgeEventFactory_onEnchantmentLevelSet, null, world, tablePos, slot, power, itemToEnchant, level);
+            try {
+                return (int) mthForgeEventFactory_onEnchantmentLevelSet.invokeExact(world, tablePos, slot, power, itemToEnchant, level);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
         }
 
         @Override
         public int ForgeHooks_getEnchantPower(World world, BlockPos pos) {
-            return (Integer) invokeMethod(mthForgeHooks_getEnchantPower, null, world, pos);
+            try {
+                return (int) mthForgeHooks_getEnchantPower.invokeExact(world, pos);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
         }
 
         private static Class<?> getClass(String name) {
@@ -57,26 +71,21 @@ public class ForgeHooks {
                 throw new AssertionError(e);
             }
         }
-        private static Method getMethod(Class<?> clazz, String method, Class<?>... args) {
+        private static MethodHandle getMethod(Class<?> clazz, String method, Class<?> returnType, Class<?>... args) {
             try {
-                return clazz.getMethod(method, args);
-            } catch (NoSuchMethodException e) {
+                MethodHandle handle = MethodHandles.publicLookup().unreflect(clazz.getMethod(method, args));
+                return handle.asType(MethodType.methodType(returnType, args));
+            } catch (ReflectiveOperationException e) {
                 throw new AssertionError(e);
             }
         }
-        private static Object invokeMethod(Method method, Object instance, Object... args) {
-            try {
-                return method.invoke(instance, args);
-            } catch (InvocationTargetException e) {
-                if (e.getTargetException() instanceof RuntimeException) {
-                    throw (RuntimeException) e.getTargetException();
-                } else if (e.getTargetException() instanceof Error) {
-                    throw (Error) e.getTargetException();
-                } else {
-                    throw new RuntimeException(e.getTargetException());
-                }
-            } catch (ReflectiveOperationException e) {
-                throw new AssertionError(e);
+        private static RuntimeException rethrow(Throwable e) {
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            } else {
+                throw new RuntimeException(e);
             }
         }
     }
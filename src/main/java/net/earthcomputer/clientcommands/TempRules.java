@@ -37,6 +37,24 @@ public class TempRules {
     @Rule
     public static boolean toolBreakWarning = false;
 
+    @Rule(min = 1, max = 1000000)
+    public static int enchSearchHorizon = 1000;
+
+    @Rule(min = 0, max = 15)
+    public static int enchMinBookshelves = 0;
+
+    @Rule(min = 0, max = 15)
+    public static int enchMaxBookshelves = 15;
+
+    @Rule(min = 1, max = 20)
+    public static int enchSearchResults = 3;
+
+    @Rule(min = 1, max = 4096)
+    public static int maxPlayerRNGForks = 64;
+
+    @Rule(keepOnDisconnect = true)
+    public static boolean persistCrackState = false;
+
     public static Object get(String name) {
         Field field = rules.get(name);
         if (field == null)
@@ -66,10 +84,28 @@ public class TempRules {
         return field.getType();
     }
 
+    public static int getMinValue(String name) {
+        Field field = rules.get(name);
+        if (field == null)
+            throw new IllegalArgumentException();
+        return field.getAnnotation(Rule.class).min();
+    }
+
+    public static int getMaxValue(String name) {
+        Field field = rules.get(name);
+        if (field == null)
+            throw new IllegalArgumentException();
+        return field.getAnnotation(Rule.class).max();
+    }
+
     public static List<String> getRules() {
         return new ArrayList<>(rules.keySet());
     }
 
+    public static List<String> getRulesResetOnDisconnect() {
+        return rules.keySet().stream().filter(rule -> !rules.get(rule).getAnnotation(Rule.class).keepOnDisconnect()).collect(Collectors.toCollection(ArrayList::new));
+    }
+
     public static List<String> getWritableRules() {
         return rules.keySet().stream().filter(rule -> !rules.get(rule).getAnnotation(Rule.class).readOnly()).collect(Collectors.toCollection(ArrayList::new));
     }
@@ -119,6 +155,10 @@ public class TempRules {
     private static @interface Rule {
         boolean readOnly() default false;
         String setter() default "";
+        boolean keepOnDisconnect() default false;
+        // only used by int rules
+        int min() default Integer.MIN_VALUE;
+        int max() default Integer.MAX_VALUE;
     }
 
 }
@@ -6,23 +6,36 @@ import net.minecraft.command.CommandException;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.text.TranslatableText;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static net.earthcomputer.clientcommands.command.arguments.ItemAndEnchantmentsPredicateArgumentType.*;
 import static net.earthcomputer.clientcommands.command.ClientCommandManager.*;
 import static net.minecraft.server.command.CommandManager.*;
 
 public class CEnchantCommand {
 
+    private static final List<ItemAndEnchantmentsPredicate> batch = new ArrayList<>();
+
     public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
         addClientSideCommand("cenchant");
 
         dispatcher.register(literal("cenchant")
+            .then(literal("batch")
+                .then(literal("add")
+                    .then(argument("itemAndEnchantmentsPredicate", itemAndEnchantmentsPredicate())
+                        .executes(ctx -> addToBatch(ctx.getSource(), getItemAndEnchantmentsPredicate(ctx, "itemAndEnchantmentsPredicate")))))
+                .then(literal("clear")
+                    .executes(ctx -> clearBatch(ctx.getSource())))
+                .then(literal("start")
+                    .executes(ctx -> startBatch(ctx.getSource()))))
             .then(argument("itemAndEnchantmentsPredicate", itemAndEnchantmentsPredicate())
                 .executes(ctx -> cenchant(ctx.getSource(), getItemAndEnchantmentsPredicate(ctx, "itemAndEnchantmentsPredicate")))));
     }
 
     private static int cenchant(ServerCommandSource source, ItemAndEnchantmentsPredicate itemAndEnchantmentsPredicate) throws CommandException {
         EnchantmentCracker.EnchantManipulationStatus status =
-                EnchantmentCracker.manipulateEnchantments(itemAndEnchantmentsPredicate.item, itemAndEnchantmentsPredicate.predicate);
+                EnchantmentCracker.manipulateEnchantments(itemAndEnchantmentsPredicate);
         if (status != EnchantmentCracker.EnchantManipulationStatus.OK) {
             throw new CommandException(new TranslatableText(status.getTranslation()));
         } else {
@@ -31,4 +44,35 @@ public class CEnchantCommand {
         }
     }
 
+    private static int addToBatch(ServerCommandSource source, ItemAndEnchantmentsPredicate itemAndEnchantmentsPredicate) throws CommandException {
+        if (batch.size() >= EnchantmentCracker.MAX_BATCH_SIZE) {
+            throw new CommandException(new TranslatableText("commands.cenchant.batch.full", EnchantmentCracker.MAX_BATCH_SIZE));
+        }
+        batch.add(itemAndEnchantmentsPredicate);
+        sendFeedback(new TranslatableText("commands.cenchant.batch.added",
+                new TranslatableText(itemAndEnchantmentsPredicate.item.getTranslationKey()), batch.size()));
+        return batch.size();
+    }
+
+    private static int clearBatch(ServerCommandSource source) {
+        batch.clear();
+        sendFeedback("commands.cenchant.batch.cleared");
+        return 0;
+    }
+
+    private static int startBatch(ServerCommandSource source) throws CommandException {
+        if (batch.isEmpty()) {
+            throw new CommandException(new TranslatableText("commands.cenchant.batch.empty"));
+        }
+        EnchantmentCracker.EnchantManipulationStatus status = EnchantmentCracker.manipulateEnchantmentsBatch(batch);
+        if (status != EnchantmentCracker.EnchantManipulationStatus.OK) {
+            throw new CommandException(new TranslatableText(status.getTranslation()));
+        } else {
+            int size = batch.size();
+            batch.clear();
+            sendFeedback("commands.cenchant.success");
+            return size;
+        }
+    }
+
 }
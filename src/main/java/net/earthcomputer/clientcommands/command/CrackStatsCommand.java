@@ -0,0 +1,92 @@
+package net.earthcomputer.clientcommands.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.earthcomputer.clientcommands.features.CrackMetrics;
+import net.earthcomputer.clientcommands.features.EnchantmentCracker;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.LiteralText;
+import net.minecraft.text.TranslatableText;
+import net.minecraft.util.Formatting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static net.earthcomputer.clientcommands.command.ClientCommandManager.*;
+import static net.minecraft.server.command.CommandManager.*;
+
+public class CrackStatsCommand {
+
+    public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+        addClientSideCommand("ccrackstats");
+
+        dispatcher.register(literal("ccrackstats")
+            .executes(ctx -> showStats(ctx.getSource()))
+            .then(literal("reset")
+                .executes(ctx -> resetStats(ctx.getSource())))
+            .then(literal("dump")
+                .executes(ctx -> dumpStats(ctx.getSource()))));
+    }
+
+    private static int showStats(ServerCommandSource source) {
+        sendFeedback(new TranslatableText("commands.ccrackstats.header").formatted(Formatting.BOLD));
+        int successes = 0;
+        for (CrackMetrics.Crack crack : CrackMetrics.Crack.values()) {
+            CrackMetrics.CrackStats stats = CrackMetrics.getStats(crack);
+            successes += stats.getSuccesses();
+            sendFeedback(new TranslatableText("commands.ccrackstats.crack", new TranslatableText(crack.getTranslation()),
+                    stats.getSuccesses(), stats.getFailures(), stats.getAbandoned(),
+                    String.format("%.1f", stats.getAverageSamples()), String.format("%.1f", stats.getAverageMillis())));
+            StringJoiner histogram = new StringJoiner(", ");
+            for (int bucket = 0; bucket < CrackMetrics.LATENCY_BUCKETS; bucket++) {
+                long count = stats.getLatencyCount(bucket);
+                if (count == 0)
+                    continue;
+                long bound = CrackMetrics.getLatencyBucketBound(bucket);
+                histogram.add((bound == -1 ? ">=" + CrackMetrics.getLatencyBucketBound(bucket - 1) : "<" + bound) + "ms: " + count);
+            }
+            if (histogram.length() != 0)
+                sendFeedback(new TranslatableText("commands.ccrackstats.latency", histogram.toString()));
+            if (stats.getLastCandidates() != -1)
+                sendFeedback(new TranslatableText("commands.ccrackstats.candidates", stats.getLastCandidates()));
+        }
+
+        Map<String, Integer> resets = CrackMetrics.getResets();
+        if (resets.isEmpty()) {
+            sendFeedback(new TranslatableText("commands.ccrackstats.resets.none"));
+        } else {
+            sendFeedback(new TranslatableText("commands.ccrackstats.resets"));
+            for (Map.Entry<String, Integer> reset : resets.entrySet()) {
+                sendFeedback(new LiteralText("- ").append(new TranslatableText("enchCrack.reset." + reset.getKey()))
+                        .append(": " + reset.getValue()));
+            }
+        }
+
+        sendFeedback(new TranslatableText("commands.ccrackstats.throws", CrackMetrics.getThrowsPlanned(),
+                CrackMetrics.getThrowsExecuted()));
+        return successes;
+    }
+
+    private static int resetStats(ServerCommandSource source) {
+        CrackMetrics.clear();
+        sendFeedback(new TranslatableText("commands.ccrackstats.reset.success"));
+        return 0;
+    }
+
+    private static int dumpStats(ServerCommandSource source) {
+        File dir = new File(MinecraftClient.getInstance().runDirectory, "clientcommands/crackStats");
+        File file;
+        try {
+            file = CrackMetrics.dumpCSV(dir);
+        } catch (IOException e) {
+            EnchantmentCracker.LOGGER.error("Failed to dump crack stats", e);
+            sendError(new TranslatableText("commands.ccrackstats.dump.failed"));
+            return 0;
+        }
+        sendFeedback(new TranslatableText("commands.ccrackstats.dump.success", file.getName()));
+        return 1;
+    }
+
+}
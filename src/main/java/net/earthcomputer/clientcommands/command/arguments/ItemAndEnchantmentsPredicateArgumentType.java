@@ -8,6 +8,7 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.earthcomputer.clientcommands.features.EnchantmentOutcomeTable;
 import net.minecraft.command.arguments.ItemEnchantmentArgumentType;
 import net.minecraft.command.arguments.ItemStringReader;
 import net.minecraft.enchantment.Enchantment;
@@ -26,7 +27,6 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 
 public class ItemAndEnchantmentsPredicateArgumentType implements ArgumentType<ItemAndEnchantmentsPredicateArgumentType.ItemAndEnchantmentsPredicate> {
 
@@ -50,29 +50,7 @@ public class ItemAndEnchantmentsPredicateArgumentType implements ArgumentType<It
         Parser parser = new Parser(reader);
         parser.parse();
 
-        Predicate<List<InfoEnchantment>> predicate = enchantments -> {
-            for (InfoEnchantment with : parser.with) {
-                boolean found = false;
-                for (InfoEnchantment ench : enchantments) {
-                    if (with.enchantment == ench.enchantment && (with.level == -1 || with.level == ench.level)) {
-                        found = true;
-                        break;
-                    }
-                }
-                if (!found)
-                    return false;
-            }
-            for (InfoEnchantment without : parser.without) {
-                for (InfoEnchantment ench : enchantments) {
-                    if (without.enchantment == ench.enchantment && (without.level == -1 || without.level == ench.level)) {
-                        return false;
-                    }
-                }
-            }
-            return true;
-        };
-
-        return new ItemAndEnchantmentsPredicate(parser.item, predicate);
+        return new ItemAndEnchantmentsPredicate(parser.item, parser.with, parser.without);
     }
 
     @Override
@@ -99,11 +77,66 @@ public class ItemAndEnchantmentsPredicateArgumentType implements ArgumentType<It
 
     public static class ItemAndEnchantmentsPredicate {
         public final Item item;
-        public final Predicate<List<InfoEnchantment>> predicate;
 
-        public ItemAndEnchantmentsPredicate(Item item, Predicate<List<InfoEnchantment>> predicate) {
+        // the conditions encoded as in EnchantmentOutcomeTable, where a level of 0 matches any level
+        private final int[] with;
+        private final int[] without;
+
+        public ItemAndEnchantmentsPredicate(Item item, List<InfoEnchantment> with, List<InfoEnchantment> without) {
             this.item = item;
-            this.predicate = predicate;
+            this.with = encode(with);
+            this.without = encode(without);
+        }
+
+        /**
+         * Takes the conditions already encoded as in {@link EnchantmentOutcomeTable}, where a level of 0 matches any
+         * level
+         */
+        public ItemAndEnchantmentsPredicate(Item item, int[] with, int[] without) {
+            this.item = item;
+            this.with = with.clone();
+            this.without = without.clone();
+        }
+
+        private static int[] encode(List<InfoEnchantment> enchantments) {
+            int[] encoded = new int[enchantments.size()];
+            for (int i = 0; i < encoded.length; i++) {
+                InfoEnchantment ench = enchantments.get(i);
+                encoded[i] = (Registry.ENCHANTMENT.getRawId(ench.enchantment) << 8) | (ench.level == -1 ? 0 : ench.level);
+            }
+            return encoded;
+        }
+
+        /**
+         * Tests whether the enchantments encoded by an {@link EnchantmentOutcomeTable} include every enchantment the
+         * item should have and none that it shouldn't, without allocating
+         */
+        public boolean test(int[] enchantments, int offset, int count) {
+            for (int with : this.with) {
+                boolean found = false;
+                for (int i = offset; i < offset + count; i++) {
+                    if (matches(with, enchantments[i])) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found)
+                    return false;
+            }
+            for (int without : this.without) {
+                for (int i = offset; i < offset + count; i++) {
+                    if (matches(without, enchantments[i])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean matches(int condition, int ench) {
+            int level = EnchantmentOutcomeTable.getEnchantmentLevel(condition);
+            return EnchantmentOutcomeTable.getEnchantmentId(condition) == EnchantmentOutcomeTable.getEnchantmentId(ench)
+                    && (level == 0 || level == EnchantmentOutcomeTable.getEnchantmentLevel(ench));
         }
     }
 
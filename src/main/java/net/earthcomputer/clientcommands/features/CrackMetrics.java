@@ -0,0 +1,262 @@
+package net.earthcomputer.clientcommands.features;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps count of how the crackers are doing, so that farms can be tuned: how often each crack succeeds, how many
+ * samples and how long it takes, how the candidate counts shrink, why the cracker gets reset, and how many of the throws
+ * planned by enchantment manipulation were actually made.
+ *
+ * Everything here is a few array or map updates per crack event, which are rare compared to frames. Only accessed from
+ * the client thread.
+ */
+public final class CrackMetrics {
+
+    // bucket k holds the cracks which took less than 2^k milliseconds, the last bucket holds everything slower
+    public static final int LATENCY_BUCKETS = 18;
+    private static final int CANDIDATE_HISTORY = 1024;
+
+    private static final CrackStats[] stats = new CrackStats[Crack.values().length];
+    static {
+        for (Crack crack : Crack.values())
+            stats[crack.ordinal()] = new CrackStats();
+    }
+    private static final Map<String, Integer> resets = new TreeMap<>();
+    // a ring buffer of candidate counts, oldest first from candidateHistoryStart
+    private static final long[] candidateTimes = new long[CANDIDATE_HISTORY];
+    private static final Crack[] candidateCracks = new Crack[CANDIDATE_HISTORY];
+    private static final int[] candidateCounts = new int[CANDIDATE_HISTORY];
+    private static int candidateHistoryStart = 0;
+    private static int candidateHistorySize = 0;
+    private static long throwsPlanned = 0;
+    private static long throwsExecuted = 0;
+
+    private CrackMetrics() {
+    }
+
+    /**
+     * Starts timing a crack from scratch. A crack of the same kind which was still running is counted as abandoned
+     */
+    public static void startCrack(Crack crack) {
+        CrackStats s = stats[crack.ordinal()];
+        if (s.isRunning())
+            s.abandoned++;
+        s.running = true;
+        s.startNanos = System.nanoTime();
+        s.samples = 0;
+    }
+
+    public static void abandonCrack(Crack crack) {
+        CrackStats s = stats[crack.ordinal()];
+        if (s.isRunning()) {
+            s.abandoned++;
+            s.running = false;
+        }
+    }
+
+    /**
+     * Counts every running crack as abandoned, for when the world they were running in goes away
+     */
+    public static void abandonAll() {
+        for (Crack crack : Crack.values())
+            abandonCrack(crack);
+    }
+
+    public static void addSample(Crack crack) {
+        CrackStats s = stats[crack.ordinal()];
+        if (s.isRunning())
+            s.samples++;
+    }
+
+    public static void crackSucceeded(Crack crack) {
+        CrackStats s = stats[crack.ordinal()];
+        if (!s.isRunning())
+            return;
+        long nanos = System.nanoTime() - s.startNanos;
+        s.running = false;
+        s.successes++;
+        s.totalSamples += s.samples;
+        s.totalNanos += nanos;
+        s.latencyHistogram[getLatencyBucket(nanos)]++;
+    }
+
+    public static void crackFailed(Crack crack) {
+        CrackStats s = stats[crack.ordinal()];
+        if (s.isRunning()) {
+            s.failures++;
+            s.running = false;
+        }
+    }
+
+    public static void recordCandidates(Crack crack, int count) {
+        int index = (candidateHistoryStart + candidateHistorySize) % CANDIDATE_HISTORY;
+        if (candidateHistorySize == CANDIDATE_HISTORY)
+            candidateHistoryStart = (candidateHistoryStart + 1) % CANDIDATE_HISTORY;
+        else
+            candidateHistorySize++;
+        candidateTimes[index] = System.currentTimeMillis();
+        candidateCracks[index] = crack;
+        candidateCounts[index] = count;
+        stats[crack.ordinal()].lastCandidates = count;
+    }
+
+    public static void onReset(String reason) {
+        resets.merge(reason, 1, Integer::sum);
+    }
+
+    public static void onThrowsPlanned(int count) {
+        throwsPlanned += count;
+    }
+
+    public static void onThrowExecuted() {
+        throwsExecuted++;
+    }
+
+    public static void clear() {
+        for (Crack crack : Crack.values())
+            stats[crack.ordinal()] = new CrackStats();
+        resets.clear();
+        candidateHistoryStart = 0;
+        candidateHistorySize = 0;
+        throwsPlanned = 0;
+        throwsExecuted = 0;
+    }
+
+    public static CrackStats getStats(Crack crack) {
+        return stats[crack.ordinal()];
+    }
+
+    public static Map<String, Integer> getResets() {
+        return Collections.unmodifiableMap(resets);
+    }
+
+    public static long getThrowsPlanned() {
+        return throwsPlanned;
+    }
+
+    public static long getThrowsExecuted() {
+        return throwsExecuted;
+    }
+
+    /**
+     * Returns the upper bound of a latency bucket in milliseconds, or -1 for the last one which has no bound
+     */
+    public static long getLatencyBucketBound(int bucket) {
+        return bucket == LATENCY_BUCKETS - 1 ? -1 : 1L << bucket;
+    }
+
+    private static int getLatencyBucket(long nanos) {
+        long millis = nanos / 1000000;
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * Writes everything out as one metric per row, with the columns <code>metric,label,key,value</code>
+     */
+    public static File dumpCSV(File dir) throws IOException {
+        dir.mkdirs();
+        File file = new File(dir, "crackStats-" + System.currentTimeMillis() + ".csv");
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            out.println("metric,label,key,value");
+            for (Crack crack : Crack.values()) {
+                CrackStats s = stats[crack.ordinal()];
+                out.println("successes," + crack.getName() + ",," + s.successes);
+                out.println("failures," + crack.getName() + ",," + s.failures);
+                out.println("abandoned," + crack.getName() + ",," + s.abandoned);
+                out.println("samples," + crack.getName() + ",," + s.totalSamples);
+                out.println("latencyNanos," + crack.getName() + ",," + s.totalNanos);
+                for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+                    long bound = getLatencyBucketBound(bucket);
+                    out.println("latencyHistogram," + crack.getName() + "," + (bound == -1 ? "inf" : bound) + ","
+                            + s.latencyHistogram[bucket]);
+                }
+            }
+            for (Map.Entry<String, Integer> reset : resets.entrySet())
+                out.println("resets," + reset.getKey() + ",," + reset.getValue());
+            out.println("throwsPlanned,,," + throwsPlanned);
+            out.println("throwsExecuted,,," + throwsExecuted);
+            for (int i = 0; i < candidateHistorySize; i++) {
+                int index = (candidateHistoryStart + i) % CANDIDATE_HISTORY;
+                out.println("candidates," + candidateCracks[index].getName() + "," + candidateTimes[index] + ","
+                        + candidateCounts[index]);
+            }
+        }
+        return file;
+    }
+
+    public static enum Crack {
+        XP_SEED("xpSeed"),
+        PLAYER_SEED("playerSeed"),
+        ITEM_THROW("itemThrow");
+
+        private final String name;
+
+        Crack(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTranslation() {
+            return "crackStats.crack." + name;
+        }
+    }
+
+    public static final class CrackStats {
+        private boolean running = false;
+        private long startNanos;
+        private int samples;
+        private int successes;
+        private int failures;
+        private int abandoned;
+        private long totalSamples;
+        private long totalNanos;
+        private final long[] latencyHistogram = new long[LATENCY_BUCKETS];
+        private int lastCandidates = -1;
+
+        private boolean isRunning() {
+            return running;
+        }
+
+        public int getSuccesses() {
+            return successes;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public int getAbandoned() {
+            return abandoned;
+        }
+
+        public double getAverageSamples() {
+            return successes == 0 ? 0 : (double) totalSamples / successes;
+        }
+
+        public double getAverageMillis() {
+            return successes == 0 ? 0 : totalNanos / 1e6 / successes;
+        }
+
+        public long getLatencyCount(int bucket) {
+            return latencyHistogram[bucket];
+        }
+
+        /**
+         * Returns the most recent candidate count, or -1 if there hasn't been one
+         */
+        public int getLastCandidates() {
+            return lastCandidates;
+        }
+    }
+
+}
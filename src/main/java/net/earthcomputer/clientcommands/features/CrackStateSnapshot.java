@@ -0,0 +1,152 @@
+package net.earthcomputer.clientcommands.features;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * A copy of what the enchantment cracker knows, which can outlive the player entity or the connection.
+ *
+ * Snapshots are written in a small binary format, one file per server, so that a crack which took a lot of items and
+ * enchantments doesn't have to be redone after a relog or a restart. Nothing in a snapshot is trusted, the cracker
+ * re-validates it against the server before relying on it.
+ */
+public final class CrackStateSnapshot {
+
+    private static final int MAGIC = 0x43524b53; // "CRKS"
+    private static final int VERSION = 2;
+
+    final EnchantmentCracker.EnumCrackState crackState;
+    final boolean onFirstXPSeed;
+    final int[] xpSeeds;
+    final boolean hasPlayerSeed;
+    final long playerSeed;
+
+    CrackStateSnapshot(EnchantmentCracker.EnumCrackState crackState, boolean onFirstXPSeed, int[] xpSeeds,
+                       boolean hasPlayerSeed, long playerSeed) {
+        this.crackState = crackState;
+        this.onFirstXPSeed = onFirstXPSeed;
+        this.xpSeeds = xpSeeds;
+        this.hasPlayerSeed = hasPlayerSeed;
+        this.playerSeed = playerSeed;
+    }
+
+    /**
+     * Returns what's left of this snapshot once the server has recreated the player entity, or null if that's
+     * nothing. The server saves the XP seed with the player, but the player RNG starts again from scratch
+     */
+    public CrackStateSnapshot withoutPlayerSeed() {
+        EnchantmentCracker.EnumCrackState newState;
+        switch (crackState) {
+            case CRACKED:
+                newState = EnchantmentCracker.EnumCrackState.CRACKED_ENCH_SEED;
+                break;
+            case CRACKED_ENCH_SEED:
+            case CRACKING_ENCH_SEED:
+                newState = crackState;
+                break;
+            default:
+                return null;
+        }
+        // the XP seed came from the old player RNG, so can't be used to crack the new one
+        return new CrackStateSnapshot(newState, true, xpSeeds, false, 0);
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(crackState.asString());
+        out.writeBoolean(onFirstXPSeed);
+        out.writeInt(xpSeeds.length);
+        for (int xpSeed : xpSeeds)
+            out.writeInt(xpSeed);
+        out.writeBoolean(hasPlayerSeed);
+        out.writeLong(playerSeed);
+    }
+
+    public static CrackStateSnapshot read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not a crack state snapshot");
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Unsupported crack state snapshot version " + version);
+        String stateName = in.readUTF();
+        EnchantmentCracker.EnumCrackState crackState = null;
+        for (EnchantmentCracker.EnumCrackState state : EnchantmentCracker.EnumCrackState.values()) {
+            if (state.asString().equals(stateName))
+                crackState = state;
+        }
+        if (crackState == null)
+            throw new IOException("Unknown crack state " + stateName);
+        boolean onFirstXPSeed = in.readBoolean();
+        int xpSeedCount = in.readInt();
+        if (xpSeedCount < 0 || xpSeedCount > XPSeedCandidates.MAX_CANDIDATES)
+            throw new IOException("Invalid XP seed count " + xpSeedCount);
+        int[] xpSeeds = new int[xpSeedCount];
+        for (int i = 0; i < xpSeedCount; i++)
+            xpSeeds[i] = in.readInt();
+        boolean hasPlayerSeed = in.readBoolean();
+        long playerSeed = in.readLong();
+        return new CrackStateSnapshot(crackState, onFirstXPSeed, xpSeeds, hasPlayerSeed, playerSeed);
+    }
+
+    /**
+     * Saves this snapshot as the one for the server we're connected to
+     */
+    public void save() {
+        File file = getFile();
+        if (file == null)
+            return;
+        file.getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            write(out);
+        } catch (IOException e) {
+            EnchantmentCracker.LOGGER.error("Failed to save crack state snapshot", e);
+        }
+    }
+
+    /**
+     * Loads the snapshot for the server we're connected to, or returns null if there isn't a usable one
+     */
+    public static CrackStateSnapshot load() {
+        File file = getFile();
+        if (file == null || !file.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return read(in);
+        } catch (IOException e) {
+            EnchantmentCracker.LOGGER.warn("Ignoring unreadable crack state snapshot " + file, e);
+            return null;
+        }
+    }
+
+    public static void delete() {
+        File file = getFile();
+        if (file != null && file.exists() && !file.delete())
+            EnchantmentCracker.LOGGER.warn("Failed to delete crack state snapshot {}", file);
+    }
+
+    private static File getFile() {
+        MinecraftClient client = MinecraftClient.getInstance();
+        String key;
+        if (client.getServer() != null) {
+            key = "singleplayer_" + client.getServer().getLevelName();
+        } else {
+            ServerInfo server = client.getCurrentServerEntry();
+            if (server == null)
+                return null;
+            key = "server_" + server.address;
+        }
+        key = key.replaceAll("[^A-Za-z0-9_.-]", "_");
+        return new File(client.runDirectory, "clientcommands/crackState/" + key + ".bin");
+    }
+
+}
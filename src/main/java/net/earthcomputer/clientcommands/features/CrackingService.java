@@ -0,0 +1,230 @@
+package net.earthcomputer.clientcommands.features;
+
+import net.earthcomputer.clientcommands.task.LongTask;
+import net.earthcomputer.clientcommands.task.TaskManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs the expensive parts of the crackers off the client thread.
+ *
+ * Jobs run one at a time on a single daemon worker with a small bounded queue, so jobs which mutate cracker state
+ * can't overlap each other (a job is still free to fan out onto the fork-join pool itself). Results are handed back to
+ * the client thread by a task in the {@link TaskManager}, so the result callbacks can touch game state freely.
+ *
+ * Every job is cancelled when the cracker is reset, since whatever it was working on is no longer valid. A cancelled
+ * job's result callback is never called.
+ */
+public class CrackingService {
+
+    private static final int QUEUE_CAPACITY = 8;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                Thread thread = new Thread(r, "Cracker Worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // only accessed from the client thread
+    private static final List<Job<?>> activeJobs = new ArrayList<>();
+
+    /**
+     * Submits a job to the worker thread. The result callback is called on the client thread once the job has
+     * finished, unless it was cancelled in the meantime.
+     *
+     * @param name The translation key of the job's name, shown with its progress in the enchantment GUI
+     * @return The job, or <code>null</code> if the queue is full
+     */
+    public static <T> Job<T> submit(String name, CrackFunction<T> function, Consumer<T> onResult) {
+        return submit(name, function, onResult, () -> {});
+    }
+
+    /**
+     * Same as {@link #submit(String, CrackFunction, Consumer)}, except the failure callback is called on the client
+     * thread instead if the job throws an exception. Neither callback is called if the job was cancelled.
+     */
+    public static <T> Job<T> submit(String name, CrackFunction<T> function, Consumer<T> onResult, Runnable onFailure) {
+        Job<T> job = new Job<>(name);
+        try {
+            job.future = EXECUTOR.submit(() -> function.crack(job));
+        } catch (RejectedExecutionException e) {
+            EnchantmentCracker.LOGGER.warn("Too many cracking jobs queued, rejecting {}", name);
+            return null;
+        }
+        activeJobs.add(job);
+        TaskManager.addTask("cracker", new ResultTask<>(job, onResult, onFailure));
+        return job;
+    }
+
+    /**
+     * Creates a job which isn't run by the worker, so that a crack function can be called directly on the current
+     * thread, for example from a benchmark. The job tracks progress as usual, but can't be cancelled
+     */
+    static <T> Job<T> createDetachedJob(String name) {
+        return new Job<>(name);
+    }
+
+    public static void cancelAll() {
+        for (Job<?> job : activeJobs)
+            job.cancel();
+        activeJobs.clear();
+    }
+
+    /**
+     * Returns the oldest job which hasn't finished yet, or <code>null</code> if the worker is idle
+     */
+    public static Job<?> getCurrentJob() {
+        for (Job<?> job : activeJobs) {
+            if (!job.isFinished())
+                return job;
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    public interface CrackFunction<T> {
+        T crack(Job<T> job) throws Exception;
+    }
+
+    public static final class Job<T> {
+        private final String name;
+        private Future<T> future;
+        private volatile boolean cancelled = false;
+        // only accessed from the client thread
+        private boolean completed = false;
+        private volatile long total = 0;
+        private final AtomicLong done = new AtomicLong();
+
+        private Job(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isFinished() {
+            return cancelled || future.isDone();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Returns whether the client thread is done with the job: its result or failure callback has been called, or
+         * it was found to be cancelled. Unlike {@link #isFinished()}, this stays false while a finished job's result is
+         * waiting to be picked up. Only call from the client thread
+         */
+        public boolean isCompleted() {
+            return completed;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            future.cancel(true);
+        }
+
+        /**
+         * Throws a {@link CancellationException} if this job has been cancelled. Long loops in a job should call this
+         * (or {@link #addProgress(long)}) every so often
+         */
+        public void checkCancelled() {
+            if (cancelled)
+                throw new CancellationException(name);
+        }
+
+        public void setTotal(long total) {
+            this.total = total;
+            this.done.set(0);
+        }
+
+        /**
+         * Adds to the amount of work done, and checks whether the job has been cancelled. Safe to call from several
+         * threads at once
+         */
+        public void addProgress(long amount) {
+            done.addAndGet(amount);
+            checkCancelled();
+        }
+
+        /**
+         * Returns the fraction of the work done, between 0 and 1
+         */
+        public double getProgress() {
+            long total = this.total;
+            if (total <= 0)
+                return 0;
+            return Math.min(1, (double) done.get() / total);
+        }
+    }
+
+    private static class ResultTask<T> extends LongTask {
+        private final Job<T> job;
+        private final Consumer<T> onResult;
+        private final Runnable onFailure;
+
+        ResultTask(Job<T> job, Consumer<T> onResult, Runnable onFailure) {
+            this.job = job;
+            this.onResult = onResult;
+            this.onFailure = onFailure;
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public boolean condition() {
+            return !job.isFinished();
+        }
+
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public void body() {
+            scheduleDelay();
+        }
+
+        @Override
+        public void onCompleted() {
+            activeJobs.remove(job);
+            job.completed = true;
+            if (!job.future.isDone() || job.isCancelled()) {
+                // the task was stopped from outside, e.g. the world was unloaded
+                job.cancel();
+                return;
+            }
+
+            T result;
+            try {
+                result = job.future.get();
+            } catch (CancellationException e) {
+                return;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof CancellationException)) {
+                    EnchantmentCracker.LOGGER.error("Cracking job " + job.getName() + " failed", e.getCause());
+                    onFailure.run();
+                }
+                return;
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            onResult.accept(result);
+        }
+    }
+
+}
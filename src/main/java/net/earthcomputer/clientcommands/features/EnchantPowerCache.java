@@ -0,0 +1,94 @@
+package net.earthcomputer.clientcommands.features;
+
+import net.earthcomputer.clientcommands.ForgeHooks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the enchanting power around each enchanting table, so that repeated observations and searches don't check
+ * the 32 blocks around the table every time.
+ *
+ * A table's power only depends on the blocks in the 5x2x5 ring around it, so an entry is only dropped when one of those
+ * blocks changes, or when a chunk overlapping the ring is loaded or unloaded. Several tables are cached at once, with
+ * the least recently used ones evicted first. Only accessed from the client thread.
+ */
+public final class EnchantPowerCache {
+
+    private static final int MAX_TABLES = 64;
+
+    private static final Map<BlockPos, Integer> powers = new LinkedHashMap<BlockPos, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<BlockPos, Integer> eldest) {
+            return size() > MAX_TABLES;
+        }
+    };
+
+    private EnchantPowerCache() {
+    }
+
+    public static int getEnchantPower(World world, BlockPos tablePos) {
+        Integer power = powers.get(tablePos);
+        if (power == null) {
+            power = computeEnchantPower(world, tablePos);
+            powers.put(tablePos.toImmutable(), power);
+        }
+        return power;
+    }
+
+    public static void onBlockUpdate(BlockPos pos) {
+        if (powers.isEmpty())
+            return;
+        Iterator<BlockPos> itr = powers.keySet().iterator();
+        while (itr.hasNext()) {
+            BlockPos tablePos = itr.next();
+            int dy = pos.getY() - tablePos.getY();
+            if (dy >= 0 && dy <= 1 && Math.abs(pos.getX() - tablePos.getX()) <= 2
+                    && Math.abs(pos.getZ() - tablePos.getZ()) <= 2)
+                itr.remove();
+        }
+    }
+
+    public static void onChunkUpdate(int chunkX, int chunkZ) {
+        if (powers.isEmpty())
+            return;
+        Iterator<BlockPos> itr = powers.keySet().iterator();
+        while (itr.hasNext()) {
+            BlockPos tablePos = itr.next();
+            if ((tablePos.getX() - 2) >> 4 <= chunkX && (tablePos.getX() + 2) >> 4 >= chunkX
+                    && (tablePos.getZ() - 2) >> 4 <= chunkZ && (tablePos.getZ() + 2) >> 4 >= chunkZ)
+                itr.remove();
+        }
+    }
+
+    public static void clear() {
+        powers.clear();
+    }
+
+    private static int computeEnchantPower(World world, BlockPos tablePos) {
+        ForgeHooks forgeHooks = ForgeHooks.instance();
+        float power = 0;
+
+        for (int dz = -1; dz <= 1; dz++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if ((dz != 0 || dx != 0) && world.isAir(tablePos.add(dx, 0, dz))
+                        && world.isAir(tablePos.add(dx, 1, dz))) {
+                    power += forgeHooks.ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 0, dz * 2));
+                    power += forgeHooks.ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 1, dz * 2));
+                    if (dx != 0 && dz != 0) {
+                        power += forgeHooks.ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 0, dz));
+                        power += forgeHooks.ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 1, dz));
+                        power += forgeHooks.ForgeHooks_getEnchantPower(world, tablePos.add(dx, 0, dz * 2));
+                        power += forgeHooks.ForgeHooks_getEnchantPower(world, tablePos.add(dx, 1, dz * 2));
+                    }
+                }
+            }
+        }
+
+        return (int) power;
+    }
+
+}
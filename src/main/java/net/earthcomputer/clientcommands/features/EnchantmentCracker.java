@@ -1,19 +1,30 @@
 package net.earthcomputer.clientcommands.features;
 
 import java.lang.reflect.Field;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
+import net.cortex.clientAddon.cracker.ItemThrowDecoder;
 import net.earthcomputer.clientcommands.ForgeHooks;
 import net.earthcomputer.clientcommands.TempRules;
 import net.earthcomputer.clientcommands.command.ClientCommandManager;
+import net.earthcomputer.clientcommands.command.arguments.ItemAndEnchantmentsPredicateArgumentType.ItemAndEnchantmentsPredicate;
 import net.earthcomputer.clientcommands.task.LongTaskList;
 import net.earthcomputer.clientcommands.task.OneTickTask;
 import net.minecraft.client.MinecraftClient;
@@ -32,10 +43,10 @@ import net.minecraft.item.Items;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.network.packet.PlayerMoveC2SPacket;
 import net.minecraft.text.LiteralText;
+import net.minecraft.text.Text;
 import net.minecraft.text.TranslatableText;
 import net.minecraft.util.Formatting;
 import net.minecraft.util.StringIdentifiable;
-import net.minecraft.util.registry.Registry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -107,8 +118,152 @@ public class EnchantmentCracker {
 
     private static int expectedThrows = 0;
 
+    // every use of the player RNG we've maintained, so candidate states can be brought up to date
+    private static final PlayerRNGLedger rngLedger = new PlayerRNGLedger();
+    // when we couldn't tell exactly how the RNG was used, the states it could have been in just after forkEvent.
+    // Null when the player RNG is known exactly, in which case playerRand is up to date
+    private static long[] playerRandForks = null;
+    private static long forkEvent = 0;
+    // the XP seed each fork drew at the last enchantment, or null if there hasn't been one since forking
+    private static int[] forkXPSeeds = null;
+    // the events of items we threw while forked whose spawn packets haven't arrived yet, which tell us which forks
+    // are right
+    private static final ArrayDeque<Long> pendingThrows = new ArrayDeque<>();
+    // items we threw before forking whose spawn packets haven't arrived yet, which must not be matched to a fork
+    private static int unforkedThrowsInFlight = 0;
+    private static final int MAX_PENDING_THROWS = 64;
+    // how far from where the server would spawn our thrown items a spawn packet can be and still be one of ours
+    private static final double THROW_POSITION_TOLERANCE = 0.5;
+    // the fastest a thrown item can spread sideways in the spawn packet's units, 0.02 * 8000, plus the prediction's
+    // tolerance of 1
+    private static final int MAX_THROW_SPEED = 161;
+
+    private static void recordRNGEvent(PlayerRNGLedger.EventType type, int amount, int level) {
+        // don't let the events the forks need fall out of the ledger
+        if (playerRandForks != null && rngLedger.getEventCount() - forkEvent >= PlayerRNGLedger.CAPACITY)
+            rebasePlayerRandForks();
+        long event = rngLedger.append(getCurrentTick(), type, amount, level);
+        if (type == PlayerRNGLedger.EventType.DROP_ITEM) {
+            if (playerRandForks == null) {
+                unforkedThrowsInFlight = Math.min(MAX_PENDING_THROWS, unforkedThrowsInFlight + 1);
+            } else {
+                if (pendingThrows.size() == MAX_PENDING_THROWS)
+                    pendingThrows.poll();
+                pendingThrows.add(event);
+            }
+        }
+        if (playerRandForks == null)
+            PlayerRNGLedger.apply(playerRand, type, amount, level);
+    }
+
+    private static long getCurrentTick() {
+        World world = MinecraftClient.getInstance().world;
+        return world == null ? 0 : world.getTime();
+    }
+
+    /**
+     * Returns the states the player RNG could be in now
+     */
+    private static long[] getPlayerRandStates() {
+        if (playerRandForks == null)
+            return new long[] {playerRand.getState()};
+        long[] states = new long[playerRandForks.length];
+        for (int i = 0; i < states.length; i++)
+            states[i] = rngLedger.replay(playerRandForks[i], forkEvent);
+        return states;
+    }
+
+    private static void rebasePlayerRandForks() {
+        playerRandForks = getPlayerRandStates();
+        forkEvent = rngLedger.getEventCount();
+    }
+
+    private static void setPlayerRandForks(long[] forks, int[] xpSeeds) {
+        if (forks.length == 1) {
+            playerRand.setState(rngLedger.replay(forks[0], forkEvent));
+            playerRandForks = null;
+            forkXPSeeds = null;
+        } else {
+            playerRandForks = forks;
+            forkXPSeeds = xpSeeds;
+        }
+    }
+
+    private static void clearPendingThrows() {
+        pendingThrows.clear();
+        unforkedThrowsInFlight = 0;
+    }
+
+    // the predicate is given the index of each fork, so it can look at the fork's XP seed as well as its state
+    private static void retainPlayerRandForks(IntPredicate predicate, String resetReason) {
+        long[] forks = new long[playerRandForks.length];
+        int[] xpSeeds = forkXPSeeds == null ? null : new int[forks.length];
+        int forkCount = 0;
+        for (int i = 0; i < playerRandForks.length; i++) {
+            if (predicate.test(i)) {
+                forks[forkCount] = playerRandForks[i];
+                if (xpSeeds != null)
+                    xpSeeds[forkCount] = forkXPSeeds[i];
+                forkCount++;
+            }
+        }
+        if (forkCount == 0) {
+            resetCracker(resetReason);
+            return;
+        }
+        LOGGER.debug("Pruned player RNG forks from {} to {}", playerRandForks.length, forkCount);
+        setPlayerRandForks(Arrays.copyOf(forks, forkCount), xpSeeds == null ? null : Arrays.copyOf(xpSeeds, forkCount));
+    }
+
+    /**
+     * Called when an item entity spawns, which may be one we threw while the player RNG was forked
+     */
+    public static void onItemSpawn(double x, double y, double z, int velocityX, int velocityZ) {
+        if (unforkedThrowsInFlight == 0 && pendingThrows.isEmpty())
+            return;
+        // items we throw spawn just below our eyes, anything else was thrown by someone else or dropped by a block
+        PlayerEntity player = MinecraftClient.getInstance().player;
+        if (player == null || Math.abs(x - player.x) > THROW_POSITION_TOLERANCE
+                || Math.abs(y - (player.y + player.getStandingEyeHeight() - 0.3)) > THROW_POSITION_TOLERANCE
+                || Math.abs(z - player.z) > THROW_POSITION_TOLERANCE)
+            return;
+        if ((long) velocityX * velocityX + (long) velocityZ * velocityZ > MAX_THROW_SPEED * MAX_THROW_SPEED)
+            return; // too fast to be one of our items
+        if (unforkedThrowsInFlight > 0) {
+            unforkedThrowsInFlight--;
+            return;
+        }
+        long throwEvent = pendingThrows.poll();
+        // if the forks have moved on past this throw since, there's nothing to check them against
+        if (playerRandForks == null || throwEvent < forkEvent)
+            return;
+        retainPlayerRandForks(index -> {
+            // the angle is the first of the throw's four calls
+            long angleState = LCGRandom.step(rngLedger.replay(playerRandForks[index], forkEvent, throwEvent));
+            long velocity = ItemThrowDecoder.predictVelocity(angleState);
+            // the prediction can be a unit out, see ItemThrowDecoder
+            return Math.abs(ItemThrowDecoder.getPredictedVelocityX(velocity) - velocityX) <= 1
+                    && Math.abs(ItemThrowDecoder.getPredictedVelocityZ(velocity) - velocityZ) <= 1;
+        }, "throwMismatch");
+    }
+
+    public static boolean isPlayerRandForked() {
+        return playerRandForks != null;
+    }
+
+    public static void onPlayerSeedCracked(long seed) {
+        playerRand.setState(seed);
+        playerRandForks = null;
+        forkXPSeeds = null;
+        clearPendingThrows();
+        rngLedger.clear();
+        restoredPlayerSeedUnverified = false;
+        TempRules.enchCrackState = EnumCrackState.CRACKED_PLAYER_SEED;
+    }
+
     public static void resetCracker(String reason) {
         if (TempRules.enchCrackState != EnumCrackState.UNCRACKED) {
+            CrackMetrics.onReset(reason);
             ClientCommandManager.sendFeedback(new LiteralText(Formatting.RED + I18n.translate(
                     "enchCrack.reset", I18n.translate("enchCrack.reset." + reason))));
         }
@@ -119,8 +274,7 @@ public class EnchantmentCracker {
         if (expectedThrows > 0)
             expectedThrows--;
         else if (canMaintainPlayerRNG())
-            for (int i = 0; i < 4; i++)
-                playerRand.nextInt();
+            recordRNGEvent(PlayerRNGLedger.EventType.DROP_ITEM, 0, 0);
         else
             resetCracker("dropItem");
     }
@@ -167,7 +321,7 @@ public class EnchantmentCracker {
 
     public static void onAnvilUse() {
         if (canMaintainPlayerRNG())
-            playerRand.nextInt();
+            recordRNGEvent(PlayerRNGLedger.EventType.NEXT_INT, 0, 0);
         else
             resetCracker("anvil");
     }
@@ -178,7 +332,7 @@ public class EnchantmentCracker {
 
     public static void onBaneOfArthropods() {
         if (canMaintainPlayerRNG())
-            playerRand.nextInt();
+            recordRNGEvent(PlayerRNGLedger.EventType.NEXT_INT, 0, 0);
         else
             resetCracker("baneOfArthropods");
     }
@@ -187,17 +341,181 @@ public class EnchantmentCracker {
         resetCracker("recreated");
     }
 
+    // CRACK STATE SNAPSHOTS
+    /*
+     * With the persistCrackState rule on, what the cracker knows is carried over
+     * when the player entity is recreated, and saved to disk when disconnecting.
+     * Changing dimension while alive keeps the same server-side player, so the
+     * whole state carries over. Dying or relogging gives a new player with a new
+     * RNG, but the XP seed is saved with the player, so that part is kept. A
+     * restored XP seed is checked against the next enchanting table we see before
+     * it's trusted again. The server can also recreate the player without it dying,
+     * such as when leaving the End, so a restored player seed is checked too, by
+     * checking the XP seed it predicts for the next enchantment.
+     */
+
+    private static boolean restoredXPSeedUnverified = false;
+    private static boolean restoredPlayerSeedUnverified = false;
+
+    public static void onSetWorld(boolean hasNewWorld) {
+        EnchantPowerCache.clear();
+        CrackMetrics.abandonAll();
+        CrackStateSnapshot snapshot = null;
+        if (TempRules.persistCrackState && hasNewWorld) {
+            PlayerEntity oldPlayer = MinecraftClient.getInstance().player;
+            if (oldPlayer != null) {
+                snapshot = createSnapshot();
+                if (snapshot != null && !oldPlayer.isAlive())
+                    snapshot = snapshot.withoutPlayerSeed();
+            } else {
+                snapshot = CrackStateSnapshot.load();
+                if (snapshot != null)
+                    snapshot = snapshot.withoutPlayerSeed();
+            }
+        }
+        if (snapshot == null) {
+            onRecreatePlayer();
+        } else {
+            resetCracker();
+            restoreSnapshot(snapshot);
+        }
+    }
+
+    public static void onDisconnect() {
+        CrackMetrics.abandonAll();
+        if (!TempRules.persistCrackState)
+            return;
+        CrackStateSnapshot snapshot = createSnapshot();
+        if (snapshot == null)
+            CrackStateSnapshot.delete();
+        else
+            snapshot.save();
+    }
+
+    /**
+     * Returns a snapshot of the current crack state, or null if there is nothing worth keeping
+     */
+    public static CrackStateSnapshot createSnapshot() {
+        EnumCrackState crackState = TempRules.enchCrackState;
+        if (playerRandForks != null) {
+            // we don't know which fork is right, so only the XP seed is worth keeping
+            if (crackState != EnumCrackState.CRACKED || possibleXPSeeds.size() != 1)
+                return null;
+            return new CrackStateSnapshot(EnumCrackState.CRACKED_ENCH_SEED, true, possibleXPSeeds.toArray(), false, 0);
+        }
+        switch (crackState) {
+            case CRACKED:
+            case CRACKED_PLAYER_SEED:
+                return new CrackStateSnapshot(crackState, onFirstXPSeed, possibleXPSeeds.toArray(), true,
+                        playerRand.getState());
+            case CRACKING_ENCH_SEED:
+                // still being filtered, take the last complete set
+                if (possibleXPSeeds.size() == 0)
+                    return null;
+                // fall through
+            case CRACKED_ENCH_SEED:
+                return new CrackStateSnapshot(crackState, onFirstXPSeed, possibleXPSeeds.toArray(), false, 0);
+            default:
+                return null;
+        }
+    }
+
+    private static void restoreSnapshot(CrackStateSnapshot snapshot) {
+        TempRules.enchCrackState = snapshot.crackState;
+        onFirstXPSeed = snapshot.onFirstXPSeed;
+        possibleXPSeeds.setAll(snapshot.xpSeeds);
+        if (snapshot.hasPlayerSeed)
+            playerRand.setState(snapshot.playerSeed);
+        restoredXPSeedUnverified = snapshot.crackState == EnumCrackState.CRACKED_ENCH_SEED
+                || snapshot.crackState == EnumCrackState.CRACKED;
+        restoredPlayerSeedUnverified = snapshot.hasPlayerSeed;
+        LOGGER.info("Restored enchantment crack state {} with {} XP seeds{}", snapshot.crackState.asString(),
+                snapshot.xpSeeds.length, snapshot.hasPlayerSeed ? " and the player seed" : "");
+        ClientCommandManager.sendFeedback(new TranslatableText("enchCrack.snapshot.restored",
+                new TranslatableText("enchCrack.state." + snapshot.crackState.asString())));
+    }
+
+    private static void verifyRestoredXPSeed(World world, EnchantingTableContainer container) {
+        ItemStack itemToEnchant = container.getSlot(0).getStack().copy();
+        if (itemToEnchant.isEmpty() || !itemToEnchant.isEnchantable() || enchantingTablePos == null)
+            return;
+        // a single seed, cheap enough to check on the client thread
+        int power = EnchantPowerCache.getEnchantPower(world, enchantingTablePos);
+        int[][] levelOverrides = getEnchantmentLevelOverrides(world, enchantingTablePos, power, itemToEnchant);
+        if (isXPSeedPossible(new EnchantmentOutcomeTable(itemToEnchant), new int[3], possibleXPSeeds.get(0), power,
+                levelOverrides, container.enchantmentPower, container.enchantmentId, container.enchantmentLevel)) {
+            restoredXPSeedUnverified = false;
+        } else {
+            resetCracker("snapshotInvalid");
+        }
+    }
+
     public static void onUnbreaking(ItemStack stack, int amount, int unbreakingLevel) {
         if (canMaintainPlayerRNG())
-            for (int i = 0; i < amount; i++)
-                if (!(stack.getItem() instanceof ArmorItem) || playerRand.nextFloat() >= 0.6)
-                    playerRand.nextInt(unbreakingLevel + 1);
+            recordRNGEvent(getUnbreakingEventType(stack), amount, unbreakingLevel);
         else
             resetCracker("unbreaking");
     }
 
     public static void onUnbreakingUncertain(ItemStack stack, int minAmount, int maxAmount, int unbreakingLevel) {
-        resetCracker("unbreaking");
+        if (!canMaintainPlayerRNG()) {
+            resetCracker("unbreaking");
+            return;
+        }
+        long[] states = getPlayerRandStates();
+        int amounts = maxAmount - minAmount + 1;
+        if ((long) states.length * amounts > TempRules.maxPlayerRNGForks) {
+            resetCracker("unbreaking");
+            return;
+        }
+
+        // fork every state we already had, once for each amount of damage it could have been
+        rngLedger.append(getCurrentTick(), PlayerRNGLedger.EventType.UNBREAKING_UNCERTAIN, maxAmount, unbreakingLevel);
+        PlayerRNGLedger.EventType type = getUnbreakingEventType(stack);
+        LCGRandom rand = new LCGRandom();
+        long[] forks = new long[states.length * amounts];
+        int[] xpSeeds = forkXPSeeds == null ? null : new int[forks.length];
+        for (int i = 0; i < states.length; i++) {
+            for (int j = 0; j < amounts; j++) {
+                rand.setState(states[i]);
+                PlayerRNGLedger.apply(rand, type, minAmount + j, unbreakingLevel);
+                forks[i * amounts + j] = rand.getState();
+                if (xpSeeds != null)
+                    xpSeeds[i * amounts + j] = forkXPSeeds[i];
+            }
+        }
+        forkEvent = rngLedger.getEventCount();
+        setPlayerRandForks(forks, xpSeeds);
+    }
+
+    private static PlayerRNGLedger.EventType getUnbreakingEventType(ItemStack stack) {
+        return stack.getItem() instanceof ArmorItem ? PlayerRNGLedger.EventType.UNBREAKING_ARMOR
+                : PlayerRNGLedger.EventType.UNBREAKING;
+    }
+
+    // narrows down the forks of the player RNG using the enchantments in the table
+    private static void prunePlayerRandForks(World world, EnchantingTableContainer container) {
+        ItemStack itemToEnchant = container.getSlot(0).getStack().copy();
+        if (itemToEnchant.isEmpty() || !itemToEnchant.isEnchantable() || enchantingTablePos == null)
+            return;
+        BlockPos tablePos = enchantingTablePos;
+        int power = EnchantPowerCache.getEnchantPower(world, tablePos);
+        // there are only a few XP seeds, cheap enough to check on the client thread
+        EnchantmentOutcomeTable outcomes = new EnchantmentOutcomeTable(itemToEnchant);
+        int[] levels = new int[3];
+        int[][] levelOverrides = getEnchantmentLevelOverrides(world, tablePos, power, itemToEnchant);
+        possibleXPSeeds.retainIf(xpSeed -> isXPSeedPossible(outcomes, levels, xpSeed, power, levelOverrides,
+                container.enchantmentPower, container.enchantmentId, container.enchantmentLevel));
+
+        int[] xpSeeds = possibleXPSeeds.toArray();
+        retainPlayerRandForks(index -> {
+            int forkXPSeed = forkXPSeeds[index];
+            for (int xpSeed : xpSeeds) {
+                if (forkXPSeed == xpSeed)
+                    return true;
+            }
+            return false;
+        }, "unbreaking");
     }
 
     public static void onItemDamage(int amount, LivingEntity holder, ItemStack stack) {
@@ -239,18 +557,47 @@ public class EnchantmentCracker {
      * This section is in charge of rendering the overlay on the enchantment GUI
      */
 
+    // the overlay is drawn every frame, so its lines are only rebuilt when something they show has changed
+    private static OverlayKey overlayKey = null;
+    private static List<String> overlayLines = Collections.emptyList();
+
     public static void drawEnchantmentGUIOverlay() {
+        EnchantingTableContainer container = (EnchantingTableContainer) MinecraftClient.getInstance().player.container;
+        OverlayKey key = new OverlayKey(container);
+        if (!key.equals(overlayKey)) {
+            overlayKey = key;
+            overlayLines = getEnchantmentGUIOverlayLines();
+        }
+
+        TextRenderer fontRenderer = MinecraftClient.getInstance().textRenderer;
+        int y = 0;
+        for (String line : overlayLines) {
+            fontRenderer.draw(line, 0, y, 0xffffff);
+            y += fontRenderer.fontHeight;
+        }
+    }
+
+    private static List<String> getEnchantmentGUIOverlayLines() {
         EnumCrackState crackState = TempRules.enchCrackState;
 
         List<String> lines = new ArrayList<>();
 
         lines.add(I18n.translate("enchCrack.state", I18n.translate("enchCrack.state." + crackState.asString())));
 
+        CrackingService.Job<?> job = CrackingService.getCurrentJob();
+        if (job != null) {
+            lines.add(I18n.translate("enchCrack.progress", I18n.translate(job.getName()), (int) (job.getProgress() * 100)));
+        }
+
         lines.add("");
 
         if (crackState == EnumCrackState.CRACKED_ENCH_SEED) {
-            lines.add(I18n.translate("enchCrack.xpSeed.one", possibleXPSeeds.iterator().next()));
-        } else if (crackState == EnumCrackState.CRACKING_ENCH_SEED) {
+            lines.add(I18n.translate("enchCrack.xpSeed.one", possibleXPSeeds.get(0)));
+        } else if (playerRandForks != null) {
+            if (possibleXPSeeds.size() > 1)
+                lines.add(I18n.translate("enchCrack.xpSeed.many", possibleXPSeeds.size()));
+            lines.add(I18n.translate("enchCrack.playerRNGSeed.forks", playerRandForks.length));
+        } else if (crackState == EnumCrackState.CRACKING_ENCH_SEED && !possibleXPSeeds.isEmpty()) {
             lines.add(I18n.translate("enchCrack.xpSeed.many", possibleXPSeeds.size()));
         } else if (crackState == EnumCrackState.CRACKING && !possiblePlayerRandSeeds.isEmpty()) {
             lines.add(I18n.translate("enchCrack.playerRNGSeed.many", possiblePlayerRandSeeds.size()));
@@ -258,7 +605,7 @@ public class EnchantmentCracker {
 
         lines.add("");
 
-        if (crackState == EnumCrackState.CRACKED || crackState == EnumCrackState.CRACKED_ENCH_SEED) {
+        if ((crackState == EnumCrackState.CRACKED || crackState == EnumCrackState.CRACKED_ENCH_SEED) && possibleXPSeeds.size() == 1) {
             lines.add(I18n.translate("enchCrack.enchantments"));
         } else {
             lines.add(I18n.translate("enchCrack.clues"));
@@ -274,11 +621,64 @@ public class EnchantmentCracker {
             }
         }
 
-        TextRenderer fontRenderer = MinecraftClient.getInstance().textRenderer;
-        int y = 0;
-        for (String line : lines) {
-            fontRenderer.draw(line, 0, y, 0xffffff);
-            y += fontRenderer.fontHeight;
+        return lines;
+    }
+
+    /**
+     * Everything the overlay lines depend on. The item is compared by identity, since the client replaces the stack
+     * in the slot whenever the server changes it
+     */
+    private static final class OverlayKey {
+        private final EnumCrackState crackState;
+        private final String jobName;
+        private final int jobProgress;
+        private final int xpSeedCount;
+        private final int xpSeed;
+        private final int forkCount;
+        private final int playerSeedCount;
+        private final ItemStack stack;
+        private final int[] enchantmentPower;
+        private final int[] enchantmentId;
+        private final int[] enchantmentLevel;
+
+        private OverlayKey(EnchantingTableContainer container) {
+            this.crackState = TempRules.enchCrackState;
+            CrackingService.Job<?> job = CrackingService.getCurrentJob();
+            this.jobName = job == null ? null : job.getName();
+            this.jobProgress = job == null ? 0 : (int) (job.getProgress() * 100);
+            this.xpSeedCount = possibleXPSeeds.size();
+            this.xpSeed = xpSeedCount == 1 ? possibleXPSeeds.get(0) : 0;
+            this.forkCount = playerRandForks == null ? -1 : playerRandForks.length;
+            this.playerSeedCount = possiblePlayerRandSeeds.size();
+            this.stack = container.getSlot(0).getStack();
+            this.enchantmentPower = container.enchantmentPower.clone();
+            this.enchantmentId = container.enchantmentId.clone();
+            this.enchantmentLevel = container.enchantmentLevel.clone();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) return true;
+            if (!(other instanceof OverlayKey)) return false;
+            OverlayKey that = (OverlayKey) other;
+            return crackState == that.crackState
+                    && Objects.equals(jobName, that.jobName)
+                    && jobProgress == that.jobProgress
+                    && xpSeedCount == that.xpSeedCount
+                    && xpSeed == that.xpSeed
+                    && forkCount == that.forkCount
+                    && playerSeedCount == that.playerSeedCount
+                    && stack == that.stack
+                    && Arrays.equals(enchantmentPower, that.enchantmentPower)
+                    && Arrays.equals(enchantmentId, that.enchantmentId)
+                    && Arrays.equals(enchantmentLevel, that.enchantmentLevel);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(crackState, jobName, jobProgress, xpSeedCount, xpSeed, forkCount, playerSeedCount,
+                    System.identityHashCode(stack), Arrays.hashCode(enchantmentPower), Arrays.hashCode(enchantmentId),
+                    Arrays.hashCode(enchantmentLevel));
         }
     }
 
@@ -291,36 +691,56 @@ public class EnchantmentCracker {
     public static final long ADDEND = 0xbL;
     public static final long MASK = (1L << 48) - 1;
 
-    private static Set<Integer> possibleXPSeeds = new HashSet<>(1 << 20);
+    private static XPSeedCandidates possibleXPSeeds = new XPSeedCandidates();
+    // the cracker worker filters into this one, then it's swapped with possibleXPSeeds on the client thread. A job owns
+    // the working sets from when it's submitted until its result comes back, and they're null in the meantime
+    private static XPSeedCandidates workingXPSeeds = new XPSeedCandidates();
+    private static CrackingService.Job<?> xpSeedCrackJob = null;
     private static boolean onFirstXPSeed = true;
-    private static Set<Long> possiblePlayerRandSeeds = new HashSet<>(1 << 16);
-    public static Random playerRand = new Random();
+    private static PlayerSeedCandidates possiblePlayerRandSeeds = new PlayerSeedCandidates();
+    // the cracker worker steps and filters into this one, then it's swapped with possiblePlayerRandSeeds
+    private static PlayerSeedCandidates workingPlayerRandSeeds = new PlayerSeedCandidates();
+    public static LCGRandom playerRand = new LCGRandom();
     private static boolean doneEnchantment = false;
     public static BlockPos enchantingTablePos = null;
 
     public static void resetCracker() {
+        if (xpSeedCrackJob != null && !xpSeedCrackJob.isCompleted()) {
+            // the job may still be reading the player seeds for a moment after it's cancelled, so leave them to it
+            possiblePlayerRandSeeds = new PlayerSeedCandidates();
+        }
+        CrackingService.cancelAll();
+        CrackMetrics.abandonCrack(CrackMetrics.Crack.XP_SEED);
+        CrackMetrics.abandonCrack(CrackMetrics.Crack.PLAYER_SEED);
+        xpSeedCrackJob = null;
         TempRules.enchCrackState = EnumCrackState.UNCRACKED;
         onFirstXPSeed = true;
         possibleXPSeeds.clear();
         possiblePlayerRandSeeds.clear();
-    }
-
-    private static void prepareForNextEnchantmentSeedCrack(int serverReportedXPSeed) {
-        serverReportedXPSeed &= 0x0000fff0;
-        for (int highBits = 0; highBits < 65536; highBits++) {
-            for (int low4Bits = 0; low4Bits < 16; low4Bits++) {
-                possibleXPSeeds.add((highBits << 16) | serverReportedXPSeed | low4Bits);
-            }
-        }
+        restoredXPSeedUnverified = false;
+        restoredPlayerSeedUnverified = false;
+        rngLedger.clear();
+        playerRandForks = null;
+        forkXPSeeds = null;
+        clearPendingThrows();
     }
 
     public static void addEnchantmentSeedInfo(World world, EnchantingTableContainer container) {
         EnumCrackState crackState = TempRules.enchCrackState;
         if (crackState == EnumCrackState.CRACKED_ENCH_SEED || crackState == EnumCrackState.CRACKED) {
+            if (restoredXPSeedUnverified)
+                verifyRestoredXPSeed(world, container);
+            else if (playerRandForks != null && forkXPSeeds != null && possibleXPSeeds.size() > 1)
+                prunePlayerRandForks(world, container);
             return;
         }
 
-        ItemStack itemToEnchant = container.getSlot(0).getStack();
+        // still working on the last lot of info, or its result hasn't been picked up yet
+        if (xpSeedCrackJob != null && !xpSeedCrackJob.isCompleted()) {
+            return;
+        }
+
+        ItemStack itemToEnchant = container.getSlot(0).getStack().copy();
         if (itemToEnchant.isEmpty() || !itemToEnchant.isEnchantable()) {
             return;
         }
@@ -329,111 +749,213 @@ public class EnchantmentCracker {
             return;
         BlockPos tablePos = enchantingTablePos;
 
-        if (crackState == EnumCrackState.UNCRACKED || crackState == EnumCrackState.CRACKING) {
-            TempRules.enchCrackState = EnumCrackState.CRACKING_ENCH_SEED;
-            prepareForNextEnchantmentSeedCrack(container.getSeed());
-        }
-        int power = getEnchantPower(world, tablePos);
-
-        Random rand = new Random();
-        int[] actualEnchantLevels = container.enchantmentPower;
-        int[] actualEnchantmentClues = container.enchantmentId;
-        int[] actualLevelClues = container.enchantmentLevel;
-
-        // brute force the possible seeds
-        Iterator<Integer> xpSeedItr = possibleXPSeeds.iterator();
-        seedLoop: while (xpSeedItr.hasNext()) {
-            int xpSeed = xpSeedItr.next();
-            rand.setSeed(xpSeed);
-
-            // check enchantment levels match
-            for (int slot = 0; slot < 3; slot++) {
-                int level = EnchantmentHelper.calculateEnchantmentPower(rand, slot, power, itemToEnchant);
-                if (level < slot + 1) {
-                    level = 0;
-                }
-                level = ForgeHooks.instance().ForgeEventFactory_onEnchantmentLevelSet(world, tablePos, slot, power, itemToEnchant, level);
-                if (level != actualEnchantLevels[slot]) {
-                    xpSeedItr.remove();
-                    continue seedLoop;
+        boolean prepareForNextCrack = crackState == EnumCrackState.UNCRACKED || crackState == EnumCrackState.CRACKING;
+        int serverReportedXPSeed = container.getSeed();
+        int power = EnchantPowerCache.getEnchantPower(world, tablePos);
+
+        // take a snapshot of everything the worker needs from the client thread, and hand it the working sets
+        int[][] levelOverrides = getEnchantmentLevelOverrides(world, tablePos, power, itemToEnchant);
+        int[] actualEnchantLevels = container.enchantmentPower.clone();
+        int[] actualEnchantmentClues = container.enchantmentId.clone();
+        int[] actualLevelClues = container.enchantmentLevel.clone();
+        boolean firstXPSeed = onFirstXPSeed;
+        XPSeedCandidates candidates = workingXPSeeds == null ? new XPSeedCandidates() : workingXPSeeds;
+        PlayerSeedCandidates oldPlayerRandSeeds = possiblePlayerRandSeeds;
+        PlayerSeedCandidates newPlayerRandSeeds = workingPlayerRandSeeds == null ? new PlayerSeedCandidates()
+                : workingPlayerRandSeeds;
+        if (!prepareForNextCrack)
+            candidates.copyFrom(possibleXPSeeds);
+        workingXPSeeds = null;
+        workingPlayerRandSeeds = null;
+
+        xpSeedCrackJob = CrackingService.<XPSeedCrackResult>submit("enchCrack.job.xpSeed", job -> {
+            if (prepareForNextCrack)
+                candidates.fill(serverReportedXPSeed);
+            retainPossibleXPSeeds(job, candidates, () -> new EnchantmentOutcomeTable(itemToEnchant), power,
+                    levelOverrides, actualEnchantLevels, actualEnchantmentClues, actualLevelClues);
+
+            boolean gotPlayerRNGInfo = candidates.size() == 1 && !firstXPSeed;
+            if (gotPlayerRNGInfo)
+                getNextPlayerRandSeeds(oldPlayerRandSeeds, newPlayerRandSeeds, candidates.get(0));
+            return new XPSeedCrackResult(candidates, gotPlayerRNGInfo ? newPlayerRandSeeds : null);
+        }, result -> {
+            // only count the sample once it has actually been used
+            CrackMetrics.addSample(CrackMetrics.Crack.XP_SEED);
+            workingXPSeeds = possibleXPSeeds;
+            possibleXPSeeds = result.xpSeeds;
+            if (result.playerRandSeeds == null)
+                workingPlayerRandSeeds = newPlayerRandSeeds;
+            CrackMetrics.recordCandidates(CrackMetrics.Crack.XP_SEED, possibleXPSeeds.size());
+
+            // test the outcome, see if we need to change state. Only publish the new state once all workers are done
+            if (possibleXPSeeds.size() == 0) {
+                TempRules.enchCrackState = EnumCrackState.INVALID;
+                CrackMetrics.crackFailed(CrackMetrics.Crack.XP_SEED);
+                CrackMetrics.crackFailed(CrackMetrics.Crack.PLAYER_SEED);
+                LOGGER.warn(
+                        "Invalid enchantment seed information. Has the server got unknown mods, is there a desync, or is the client just bugged?");
+            } else if (possibleXPSeeds.size() == 1) {
+                TempRules.enchCrackState = EnumCrackState.CRACKED_ENCH_SEED;
+                CrackMetrics.crackSucceeded(CrackMetrics.Crack.XP_SEED);
+                if (!onFirstXPSeed) {
+                    addPlayerRNGInfo(result.playerRandSeeds);
                 }
+                onFirstXPSeed = false;
             }
+        }, () -> {
+            // nothing was learned, go back to how things were before this table
+            workingXPSeeds = candidates;
+            workingPlayerRandSeeds = newPlayerRandSeeds;
+            TempRules.enchCrackState = crackState;
+            if (prepareForNextCrack)
+                CrackMetrics.abandonCrack(CrackMetrics.Crack.XP_SEED);
+            if (crackState == EnumCrackState.UNCRACKED)
+                CrackMetrics.abandonCrack(CrackMetrics.Crack.PLAYER_SEED);
+        });
+        if (xpSeedCrackJob == null) {
+            // the worker is too busy, try again the next time the table updates
+            workingXPSeeds = candidates;
+            workingPlayerRandSeeds = newPlayerRandSeeds;
+            return;
+        }
 
-            // generate enchantment clues and see if they match
-            for (int slot = 0; slot < 3; slot++) {
-                if (actualEnchantLevels[slot] > 0) {
-                    List<InfoEnchantment> enchantments = getEnchantmentList(rand, xpSeed, itemToEnchant, slot,
-                            actualEnchantLevels[slot]);
-                    if (enchantments == null || enchantments.isEmpty()) {
-                        // check that there is indeed no enchantment clue
-                        if (actualEnchantmentClues[slot] != -1 || actualLevelClues[slot] != -1) {
-                            xpSeedItr.remove();
-                            continue seedLoop;
-                        }
-                    } else {
-                        // check the right enchantment clue was generated
-                        InfoEnchantment clue = enchantments.get(rand.nextInt(enchantments.size()));
-                        if (Registry.ENCHANTMENT.getRawId(clue.enchantment) != actualEnchantmentClues[slot]
-                                || clue.level != actualLevelClues[slot]) {
-                            xpSeedItr.remove();
-                            continue seedLoop;
-                        }
+        if (crackState == EnumCrackState.UNCRACKED)
+            CrackMetrics.startCrack(CrackMetrics.Crack.PLAYER_SEED);
+        if (prepareForNextCrack) {
+            TempRules.enchCrackState = EnumCrackState.CRACKING_ENCH_SEED;
+            CrackMetrics.startCrack(CrackMetrics.Crack.XP_SEED);
+        }
+    }
+
+    // the highest level vanilla can pick for an enchanting table slot, with 15 bookshelves
+    private static final int MAX_VANILLA_ENCHANT_LEVEL = 30;
+
+    /**
+     * Returns the level each slot of the table really ends up with, for each level vanilla could have picked. Forge
+     * lets mods change the level with an event, whose handlers may look at the world and aren't safe to call from the
+     * cracker workers, so the event is fired here on the client thread for every possible level instead.
+     */
+    private static int[][] getEnchantmentLevelOverrides(World world, BlockPos tablePos, int power, ItemStack itemToEnchant) {
+        ForgeHooks forgeHooks = ForgeHooks.instance();
+        int[][] levelOverrides = new int[3][MAX_VANILLA_ENCHANT_LEVEL + 1];
+        for (int slot = 0; slot < 3; slot++) {
+            for (int level = 0; level <= MAX_VANILLA_ENCHANT_LEVEL; level++) {
+                levelOverrides[slot][level] = forgeHooks.ForgeEventFactory_onEnchantmentLevelSet(world, tablePos, slot,
+                        power, itemToEnchant, level);
+            }
+        }
+        return levelOverrides;
+    }
+
+    /**
+     * Keeps the XP seeds which would give the levels and clues shown in the table, splitting the brute force across
+     * the fork-join pool. Each worker gets its own table from outcomeTables. Called on the cracker worker
+     */
+    static void retainPossibleXPSeeds(CrackingService.Job<?> job, XPSeedCandidates candidates,
+                                      Supplier<EnchantmentOutcomeTable> outcomeTables, int power,
+                                      int[][] levelOverrides, int[] actualEnchantLevels,
+                                      int[] actualEnchantmentClues, int[] actualLevelClues) {
+        job.setTotal(candidates.size());
+        candidates.retainIfParallel(() -> {
+            EnchantmentOutcomeTable outcomes = outcomeTables.get();
+            int[] levels = new int[3];
+            int[] checked = {0};
+            return xpSeed -> {
+                if ((++checked[0] & 4095) == 0)
+                    job.addProgress(4096);
+                return isXPSeedPossible(outcomes, levels, xpSeed, power, levelOverrides, actualEnchantLevels,
+                        actualEnchantmentClues, actualLevelClues);
+            };
+        });
+    }
+
+    // levels is scratch space for the vanilla levels of the three slots
+    static boolean isXPSeedPossible(EnchantmentOutcomeTable outcomes, int[] levels, int xpSeed, int power,
+                                    int[][] levelOverrides, int[] actualEnchantLevels, int[] actualEnchantmentClues,
+                                    int[] actualLevelClues) {
+        outcomes.setXPSeed(xpSeed);
+
+        // check enchantment levels match
+        outcomes.calculateLevels(power, levels);
+        for (int slot = 0; slot < 3; slot++) {
+            if (levelOverrides[slot][levels[slot]] != actualEnchantLevels[slot]) {
+                return false;
+            }
+        }
+
+        // generate enchantment clues and see if they match
+        for (int slot = 0; slot < 3; slot++) {
+            if (actualEnchantLevels[slot] > 0) {
+                int clue = outcomes.getClue(slot, actualEnchantLevels[slot]);
+                if (clue == -1) {
+                    // check that there is indeed no enchantment clue
+                    if (actualEnchantmentClues[slot] != -1 || actualLevelClues[slot] != -1) {
+                        return false;
+                    }
+                } else {
+                    // check the right enchantment clue was generated
+                    if (EnchantmentOutcomeTable.getEnchantmentId(clue) != actualEnchantmentClues[slot]
+                            || EnchantmentOutcomeTable.getEnchantmentLevel(clue) != actualLevelClues[slot]) {
+                        return false;
                     }
                 }
             }
         }
+        return true;
+    }
+
+    private static final class XPSeedCrackResult {
+        private final XPSeedCandidates xpSeeds;
+        private final PlayerSeedCandidates playerRandSeeds;
+
+        private XPSeedCrackResult(XPSeedCandidates xpSeeds, PlayerSeedCandidates playerRandSeeds) {
+            this.xpSeeds = xpSeeds;
+            this.playerRandSeeds = playerRandSeeds;
+        }
+    }
 
-        // test the outcome, see if we need to change state
-        if (possibleXPSeeds.size() == 0) {
-            TempRules.enchCrackState = EnumCrackState.INVALID;
-            LOGGER.warn(
-                    "Invalid enchantment seed information. Has the server got unknown mods, is there a desync, or is the client just bugged?");
-        } else if (possibleXPSeeds.size() == 1) {
-            TempRules.enchCrackState = EnumCrackState.CRACKED_ENCH_SEED;
-            if (!onFirstXPSeed) {
-                addPlayerRNGInfo(possibleXPSeeds.iterator().next());
-            }
-            onFirstXPSeed = false;
+    // Called on the cracker worker. Starts with the initial 2^16 possibilities if we didn't have any yet
+    static void getNextPlayerRandSeeds(PlayerSeedCandidates oldPlayerRandSeeds,
+                                       PlayerSeedCandidates newPlayerRandSeeds, int enchantmentSeed) {
+        if (oldPlayerRandSeeds.isEmpty()) {
+            newPlayerRandSeeds.fill(enchantmentSeed);
+        } else {
+            // narrow down possibilities using brute force
+            newPlayerRandSeeds.copyFrom(oldPlayerRandSeeds);
+            newPlayerRandSeeds.advanceAndRetain(enchantmentSeed);
         }
     }
 
-    private static void addPlayerRNGInfo(int enchantmentSeed) {
+    private static void addPlayerRNGInfo(PlayerSeedCandidates newPlayerRandSeeds) {
         EnumCrackState crackState = TempRules.enchCrackState;
         if (crackState == EnumCrackState.CRACKED || crackState == EnumCrackState.CRACKED_PLAYER_SEED) {
             return;
         }
 
-        long newSeedHigh = ((long) enchantmentSeed << 16) & 0x0000_ffff_ffff_0000L;
-        if (possiblePlayerRandSeeds.isEmpty() && crackState != EnumCrackState.INVALID) {
-            // add initial 2^16 possibilities
-            for (int lowBits = 0; lowBits < 65536; lowBits++) {
-                possiblePlayerRandSeeds.add(newSeedHigh | lowBits);
-            }
-        } else {
-            // it's okay to allocate a new one, it will likely be small anyway
-            Set<Long> newPlayerRandSeeds = new HashSet<>();
-            // narrow down possibilities using brute force
-            for (long oldSeed : possiblePlayerRandSeeds) {
-                // this is what Random.nextInt() does internally
-                long newSeed = (oldSeed * MULTIPLIER + ADDEND) & MASK;
-                if ((newSeed & 0x0000_ffff_ffff_0000L) == newSeedHigh) {
-                    newPlayerRandSeeds.add(newSeed);
-                }
-            }
-            // add the new seed, not the old one, since the state of the RNG has changed
-            // server-side
-            possiblePlayerRandSeeds.clear();
-            possiblePlayerRandSeeds.addAll(newPlayerRandSeeds);
-
+        // add the new seeds, not the old ones, since the state of the RNG has changed
+        // server-side
+        boolean firstPlayerRNGInfo = possiblePlayerRandSeeds.isEmpty();
+        workingPlayerRandSeeds = possiblePlayerRandSeeds;
+        possiblePlayerRandSeeds = newPlayerRandSeeds;
+        CrackMetrics.addSample(CrackMetrics.Crack.PLAYER_SEED);
+        CrackMetrics.recordCandidates(CrackMetrics.Crack.PLAYER_SEED, possiblePlayerRandSeeds.size());
+        LOGGER.debug("{} possible player RNG seeds, using {} bytes", possiblePlayerRandSeeds.size(),
+                possiblePlayerRandSeeds.getMemoryFootprint() + workingPlayerRandSeeds.getMemoryFootprint());
+
+        if (!firstPlayerRNGInfo) {
             // check the outcome, see if we need to change state
             if (possiblePlayerRandSeeds.size() == 0) {
                 TempRules.enchCrackState = EnumCrackState.INVALID;
+                CrackMetrics.crackFailed(CrackMetrics.Crack.PLAYER_SEED);
                 LOGGER.warn(
                         "Invalid player RNG information. Has the server got unknown mods, is there a desync, has an operator used /give, or is the client just bugged?");
             } else if (possiblePlayerRandSeeds.size() == 1) {
                 TempRules.enchCrackState = EnumCrackState.CRACKED;
-                playerRand.setSeed(possiblePlayerRandSeeds.iterator().next() ^ MULTIPLIER);
+                CrackMetrics.crackSucceeded(CrackMetrics.Crack.PLAYER_SEED);
+                playerRand.setState(possiblePlayerRandSeeds.get(0));
                 possiblePlayerRandSeeds.clear();
+                rngLedger.clear();
+                clearPendingThrows();
             }
         }
     }
@@ -442,8 +964,22 @@ public class EnchantmentCracker {
         doneEnchantment = true;
         EnumCrackState crackState = TempRules.enchCrackState;
         if (crackState == EnumCrackState.CRACKED || crackState == EnumCrackState.CRACKED_PLAYER_SEED) {
-            possibleXPSeeds.clear();
-            possibleXPSeeds.add(playerRand.nextInt());
+            recordRNGEvent(PlayerRNGLedger.EventType.ENCHANT, 0, 0);
+            // nextInt() returns the top 32 bits of the state it leaves behind
+            if (playerRandForks == null) {
+                possibleXPSeeds.set((int) (playerRand.getState() >>> 16));
+                // the XP seed just came from the restored player seed, so checking it checks the player seed too
+                if (restoredPlayerSeedUnverified)
+                    restoredXPSeedUnverified = true;
+            } else {
+                rebasePlayerRandForks();
+                forkXPSeeds = new int[playerRandForks.length];
+                for (int i = 0; i < playerRandForks.length; i++)
+                    forkXPSeeds[i] = (int) (playerRandForks[i] >>> 16);
+                possibleXPSeeds.setAll(Arrays.stream(forkXPSeeds).distinct().toArray());
+            }
+            // if forked, the forks' XP seeds are checked against the next table anyway
+            restoredPlayerSeedUnverified = false;
             TempRules.enchCrackState = EnumCrackState.CRACKED;
         } else if (crackState == EnumCrackState.CRACKED_ENCH_SEED) {
             possibleXPSeeds.clear();
@@ -463,6 +999,8 @@ public class EnchantmentCracker {
     private static EnchantManipulationStatus manipulateEnchantmentsSanityCheck(PlayerEntity player) {
         if (TempRules.enchCrackState != EnumCrackState.CRACKED && TempRules.enchCrackState != EnumCrackState.CRACKED_PLAYER_SEED) {
             return EnchantManipulationStatus.NOT_CRACKED;
+        } else if (playerRandForks != null) {
+            return EnchantManipulationStatus.RNG_UNCERTAIN;
         } else if (!player.onGround) {
             return EnchantManipulationStatus.NOT_ON_GROUND;
         } else if (player.container.getStacks().stream().allMatch(ItemStack::isEmpty)) {
@@ -472,8 +1010,7 @@ public class EnchantmentCracker {
         }
     }
 
-    public static EnchantManipulationStatus manipulateEnchantments(Item item,
-                                                                   Predicate<List<InfoEnchantment>> enchantmentsPredicate) {
+    public static EnchantManipulationStatus manipulateEnchantments(ItemAndEnchantmentsPredicate enchantmentsPredicate) {
         ClientPlayerEntity player = MinecraftClient.getInstance().player;
 
         EnchantManipulationStatus status = manipulateEnchantmentsSanityCheck(player);
@@ -481,101 +1018,239 @@ public class EnchantmentCracker {
             return status;
         }
 
-        ItemStack stack = new ItemStack(item);
-        long seed = getSeed(playerRand);
-        // -2: not found; -1: no dummy enchantment needed; >= 0: number of times needed
-        // to throw out item before dummy enchantment
-        int timesNeeded = -2;
-        int bookshelvesNeeded = 0;
-        int slot = 0;
-        int[] enchantLevels = new int[3];
-        outerLoop: for (int i = TempRules.enchCrackState == EnumCrackState.CRACKED_PLAYER_SEED ? 0 : -1; i < 1000; i++) {
-            int xpSeed = (int) ((i == -1 ? seed : ((seed * MULTIPLIER + ADDEND) & MASK)) >>> 16);
-            Random rand = new Random();
-            for (bookshelvesNeeded = 0; bookshelvesNeeded <= 15; bookshelvesNeeded++) {
-                rand.setSeed(xpSeed);
-                for (slot = 0; slot < 3; slot++) {
-                    int level = EnchantmentHelper.calculateEnchantmentPower(rand, slot, bookshelvesNeeded, stack);
-                    if (level < slot + 1) {
-                        level = 0;
+        ItemStack stack = new ItemStack(enchantmentsPredicate.item);
+        long seed = playerRand.getState();
+        boolean crackedPlayerSeed = TempRules.enchCrackState == EnumCrackState.CRACKED_PLAYER_SEED;
+        // if we don't know where the table is, count bookshelf changes as if there are none yet
+        int currentBookshelves = enchantingTablePos == null ? 0
+                : Math.min(15, EnchantPowerCache.getEnchantPower(player.world, enchantingTablePos));
+        EnchantSearchOptions options = new EnchantSearchOptions(TempRules.enchSearchHorizon,
+                TempRules.enchMinBookshelves, TempRules.enchMaxBookshelves, currentBookshelves,
+                TempRules.enchSearchResults);
+
+        // the search is done on the cracker worker, the plan is scheduled once we're back on the client thread
+        CrackingService.Job<?> job = CrackingService.<List<EnchantManipulationPlan>>submit("enchCrack.job.manipulate",
+                j -> findEnchantmentManipulations(j, seed, crackedPlayerSeed, () -> new EnchantmentOutcomeTable(stack),
+                        enchantmentsPredicate, options),
+                plans -> {
+                    if (plans.isEmpty()) {
+                        ClientCommandManager.sendError(new TranslatableText(EnchantManipulationStatus.IMPOSSIBLE.getTranslation()));
+                        return;
                     }
-                    enchantLevels[slot] = level;
-                }
-                for (slot = 0; slot < 3; slot++) {
-                    List<InfoEnchantment> enchantments = getEnchantmentList(rand, xpSeed, stack, slot,
-                            enchantLevels[slot]);
-                    if (enchantmentsPredicate.test(enchantments)) {
-                        timesNeeded = i;
-                        break outerLoop;
+                    if (playerRand.getState() != seed) {
+                        // the player RNG was used while we were searching, so the plan is out of date
+                        ClientCommandManager.sendError(new TranslatableText(EnchantManipulationStatus.RNG_CHANGED.getTranslation()));
+                        return;
                     }
-                }
-            }
+                    EnchantManipulationStatus planStatus = manipulateEnchantmentsSanityCheck(player);
+                    if (planStatus != EnchantManipulationStatus.OK) {
+                        ClientCommandManager.sendError(new TranslatableText(planStatus.getTranslation()));
+                        return;
+                    }
+                    if (plans.size() > 1) {
+                        ClientCommandManager.sendFeedback("enchCrack.plans.header");
+                        for (int i = 0; i < plans.size(); i++) {
+                            EnchantManipulationPlan plan = plans.get(i);
+                            ClientCommandManager.sendFeedback(new TranslatableText("enchCrack.plans.entry", i + 1,
+                                    Math.max(0, plan.timesNeeded), plan.bookshelvesNeeded, plan.slot + 1, plan.cost));
+                        }
+                    }
+                    scheduleEnchantmentManipulation(player, plans.get(0));
+                });
+        if (job == null) {
+            return EnchantManipulationStatus.BUSY;
+        }
 
-            if (i != -1) {
-                for (int j = 0; j < 4; j++) {
-                    seed = (seed * MULTIPLIER + ADDEND) & MASK;
-                }
-            }
+        return EnchantManipulationStatus.OK;
+    }
+
+    private static final int SEARCH_CHUNK_SIZE = 64;
+    // the player RNG calls made by throwing an item
+    private static final LCGRandom.Jump THROW_JUMP = LCGRandom.jump(4);
+
+    // Called on the cracker worker. Returns the cheapest plans in order, or an empty list if the enchantments are
+    // impossible within the search horizon. Each chunk of the search gets its own table from outcomeTables
+    static List<EnchantManipulationPlan> findEnchantmentManipulations(CrackingService.Job<?> job, long seed,
+                                                                      boolean crackedPlayerSeed,
+                                                                      Supplier<EnchantmentOutcomeTable> outcomeTables,
+                                                                      ItemAndEnchantmentsPredicate enchantmentsPredicate,
+                                                                      EnchantSearchOptions options) {
+        int firstThrowCount = crackedPlayerSeed ? 0 : -1;
+        int throwCounts = options.horizon - firstThrowCount;
+        job.setTotal(throwCounts);
+
+        // every plan costs at least as much as its throws, so once there are enough plans no cheaper than this, any
+        // throw count beyond it can be skipped
+        AtomicInteger costCutoff = new AtomicInteger(Integer.MAX_VALUE);
+        List<ForkJoinTask<List<EnchantManipulationPlan>>> chunks = new ArrayList<>();
+        for (int chunkStart = firstThrowCount; chunkStart < options.horizon; chunkStart += SEARCH_CHUNK_SIZE) {
+            int from = chunkStart;
+            int to = Math.min(options.horizon, chunkStart + SEARCH_CHUNK_SIZE);
+            chunks.add(ForkJoinPool.commonPool().submit(() -> findEnchantmentManipulations(job, seed, from, to,
+                    outcomeTables.get(), enchantmentsPredicate, options, costCutoff)));
         }
-        if (timesNeeded == -2) {
-            return EnchantManipulationStatus.IMPOSSIBLE;
+
+        List<EnchantManipulationPlan> plans = new ArrayList<>();
+        try {
+            for (ForkJoinTask<List<EnchantManipulationPlan>> chunk : chunks) {
+                plans.addAll(chunk.join());
+            }
+        } finally {
+            for (ForkJoinTask<List<EnchantManipulationPlan>> chunk : chunks) {
+                chunk.cancel(false);
+            }
         }
+        return trimPlans(plans, options.results);
+    }
 
-        LongTaskList taskList = new LongTaskList();
-        if (timesNeeded != -1) {
-            if (timesNeeded != 0) {
-                player.setPositionAndAngles(player.x, player.y, player.z, player.yaw, 90);
-                // sync rotation to server before we throw any items
-                player.networkHandler.sendPacket(new PlayerMoveC2SPacket.LookOnly(player.yaw, 90, player.onGround));
-            }
-            for (int i = 0; i < timesNeeded; i++) {
-                // throw the item once it's in the inventory
-                taskList.addTask(new LongTask() {
-                    @Override
-                    public void initialize() {
+    private static List<EnchantManipulationPlan> findEnchantmentManipulations(CrackingService.Job<?> job, long seed,
+                                                                              int from, int to,
+                                                                              EnchantmentOutcomeTable outcomes,
+                                                                              ItemAndEnchantmentsPredicate enchantmentsPredicate,
+                                                                              EnchantSearchOptions options,
+                                                                              AtomicInteger costCutoff) {
+        List<EnchantManipulationPlan> plans = new ArrayList<>();
+        int[] enchantLevels = new int[3];
+        // jump straight to this chunk's first throw rather than stepping through every throw before it
+        long state = LCGRandom.advance(seed, 4L * Math.max(0, from));
+        for (int i = from; i < to; i++) {
+            if (i > costCutoff.get()) {
+                job.addProgress(to - i);
+                break;
+            }
+            job.addProgress(1);
+            if (i == -1) {
+                outcomes.setXPSeed((int) (seed >>> 16));
+            } else {
+                outcomes.setXPSeed((int) (LCGRandom.step(state) >>> 16));
+                state = THROW_JUMP.apply(state);
+            }
+            for (int bookshelvesNeeded = options.minBookshelves; bookshelvesNeeded <= options.maxBookshelves; bookshelvesNeeded++) {
+                outcomes.calculateLevels(bookshelvesNeeded, enchantLevels);
+                for (int slot = 0; slot < 3; slot++) {
+                    int offset = outcomes.getOutcomeOffset(slot, enchantLevels[slot]);
+                    int size = outcomes.getOutcomeSize(slot, enchantLevels[slot]);
+                    if (enchantmentsPredicate.test(outcomes.getOutcomes(), offset, size)) {
+                        int cost = Math.max(0, i) + Math.abs(bookshelvesNeeded - options.currentBookshelves);
+                        plans.add(new EnchantManipulationPlan(i, bookshelvesNeeded, slot, cost));
                     }
+                }
+            }
+            if (plans.size() >= options.results) {
+                plans = trimPlans(plans, options.results);
+                if (plans.size() == options.results) {
+                    int worstCost = plans.get(plans.size() - 1).cost;
+                    costCutoff.accumulateAndGet(worstCost, Math::min);
+                }
+            }
+        }
+        return plans;
+    }
 
-                    @Override
-                    public boolean condition() {
-                        EnchantManipulationStatus status = manipulateEnchantmentsSanityCheck(player);
-                        if (status == EnchantManipulationStatus.OK)
-                            return false; // ready to throw an item
-                        if (status == EnchantManipulationStatus.EMPTY_INVENTORY)
-                            return true; // keep waiting
-                        player.sendMessage(new LiteralText(Formatting.RED + I18n.translate(status.getTranslation())));
-                        taskList._break();
-                        return false;
-                    }
+    private static List<EnchantManipulationPlan> trimPlans(List<EnchantManipulationPlan> plans, int count) {
+        plans.sort(EnchantManipulationPlan.CHEAPEST_FIRST);
+        return plans.size() <= count ? plans : new ArrayList<>(plans.subList(0, count));
+    }
 
-                    @Override
-                    public void increment() {
-                    }
+    static final class EnchantSearchOptions {
+        private final int horizon;
+        private final int minBookshelves;
+        private final int maxBookshelves;
+        private final int currentBookshelves;
+        private final int results;
+
+        EnchantSearchOptions(int horizon, int minBookshelves, int maxBookshelves, int currentBookshelves,
+                             int results) {
+            this.horizon = horizon;
+            // the two rules are set one at a time, so they can be the wrong way round in between. Rejecting that in the
+            // setters would stop the range being moved past the old one in either order, so take them either way round
+            this.minBookshelves = Math.min(minBookshelves, maxBookshelves);
+            this.maxBookshelves = Math.max(minBookshelves, maxBookshelves);
+            this.currentBookshelves = currentBookshelves;
+            this.results = results;
+        }
+    }
 
-                    @Override
-                    public void body() {
-                        scheduleDelay();
-                    }
+    static final class EnchantManipulationPlan {
+        // ties are broken the same way the search used to find its first plan
+        private static final Comparator<EnchantManipulationPlan> CHEAPEST_FIRST = Comparator
+                .<EnchantManipulationPlan>comparingInt(plan -> plan.cost)
+                .thenComparingInt(plan -> plan.timesNeeded)
+                .thenComparingInt(plan -> plan.bookshelvesNeeded)
+                .thenComparingInt(plan -> plan.slot);
+
+        // -1: no dummy enchantment needed; >= 0: number of times needed to throw out item before dummy enchantment
+        private final int timesNeeded;
+        private final int bookshelvesNeeded;
+        private final int slot;
+        // items thrown plus bookshelves added or removed
+        private final int cost;
+
+        private EnchantManipulationPlan(int timesNeeded, int bookshelvesNeeded, int slot, int cost) {
+            this.timesNeeded = timesNeeded;
+            this.bookshelvesNeeded = bookshelvesNeeded;
+            this.slot = slot;
+            this.cost = cost;
+        }
+    }
 
-                    @Override
-                    public void onCompleted() {
-                        EnchantManipulationStatus status = throwItem();
-                        assert status == EnchantManipulationStatus.OK;
+    private static void scheduleEnchantmentManipulation(ClientPlayerEntity player, EnchantManipulationPlan plan) {
+        LongTaskList taskList = new LongTaskList();
+        addEnchantmentManipulationTasks(player, taskList, plan, null, 0);
+        TaskManager.addTask("enchantmentCracker", taskList);
+    }
 
-                        scheduleDelay();
-                    }
-                });
-            }
+    private static void addEnchantmentManipulationTasks(ClientPlayerEntity player, LongTaskList taskList,
+                                                        EnchantManipulationPlan plan, Item item, int delay) {
+        int timesNeeded = plan.timesNeeded;
+        if (timesNeeded != -1) {
+            addThrowTasks(player, taskList, timesNeeded);
             // dummy enchantment
+            taskList.addTask(createWaitForEnchantmentTask(player, new TranslatableText("enchCrack.insn.dummy")));
+        }
+        // these don't change the enchantments, only the XP seed after them
+        addThrowTasks(player, taskList, delay);
+        taskList.addTask(new OneTickTask() {
+            @Override
+            public void run() {
+                player.sendMessage(new LiteralText(Formatting.BOLD + I18n.translate("enchCrack.insn.ready")));
+                if (item != null)
+                    player.sendMessage(new TranslatableText("enchCrack.insn.item", new TranslatableText(item.getTranslationKey())));
+                player.sendMessage(new TranslatableText("enchCrack.insn.bookshelves", plan.bookshelvesNeeded));
+                player.sendMessage(new TranslatableText("enchCrack.insn.slot", plan.slot + 1));
+            }
+        });
+    }
+
+    private static void addThrowTasks(ClientPlayerEntity player, LongTaskList taskList, int count) {
+        CrackMetrics.onThrowsPlanned(count);
+        if (count != 0) {
+            taskList.addTask(new OneTickTask() {
+                @Override
+                public void run() {
+                    player.setPositionAndAngles(player.x, player.y, player.z, player.yaw, 90);
+                    // sync rotation to server before we throw any items
+                    player.networkHandler.sendPacket(new PlayerMoveC2SPacket.LookOnly(player.yaw, 90, player.onGround));
+                }
+            });
+        }
+        for (int i = 0; i < count; i++) {
+            // throw the item once it's in the inventory
             taskList.addTask(new LongTask() {
                 @Override
                 public void initialize() {
-                    player.sendMessage(new TranslatableText("enchCrack.insn.dummy"));
-                    doneEnchantment = false;
                 }
 
                 @Override
                 public boolean condition() {
-                    return !doneEnchantment;
+                    EnchantManipulationStatus status = manipulateEnchantmentsSanityCheck(player);
+                    if (status == EnchantManipulationStatus.OK)
+                        return false; // ready to throw an item
+                    if (status == EnchantManipulationStatus.EMPTY_INVENTORY)
+                        return true; // keep waiting
+                    player.sendMessage(new LiteralText(Formatting.RED + I18n.translate(status.getTranslation())));
+                    taskList._break();
+                    return false;
                 }
 
                 @Override
@@ -586,50 +1261,405 @@ public class EnchantmentCracker {
                 public void body() {
                     scheduleDelay();
                 }
+
+                @Override
+                public void onCompleted() {
+                    EnchantManipulationStatus status = throwItem();
+                    assert status == EnchantManipulationStatus.OK;
+                    CrackMetrics.onThrowExecuted();
+
+                    scheduleDelay();
+                }
             });
         }
-        final int bookshelvesNeeded_f = bookshelvesNeeded;
-        final int slot_f = slot;
-        taskList.addTask(new OneTickTask() {
+    }
+
+    private static LongTask createWaitForEnchantmentTask(ClientPlayerEntity player, Text message) {
+        return new LongTask() {
             @Override
-            public void run() {
-                player.sendMessage(new LiteralText(Formatting.BOLD + I18n.translate("enchCrack.insn.ready")));
-                player.sendMessage(new TranslatableText("enchCrack.insn.bookshelves", bookshelvesNeeded_f));
-                player.sendMessage(new TranslatableText("enchCrack.insn.slot", slot_f + 1));
+            public void initialize() {
+                player.sendMessage(message);
+                doneEnchantment = false;
             }
-        });
 
-        TaskManager.addTask("enchantmentCracker", taskList);
+            @Override
+            public boolean condition() {
+                return !doneEnchantment;
+            }
+
+            @Override
+            public void increment() {
+            }
+
+            @Override
+            public void body() {
+                scheduleDelay();
+            }
+        };
+    }
+
+    // BATCH ENCHANTMENT MANIPULATION
+    /*
+     * Throwing items, dummy enchantments and real enchantments all just step the
+     * same player RNG, so enchanting several items is a matter of choosing where
+     * along one stream of RNG states each item gets enchanted. Position q in the
+     * stream is the state after q calls from now, and its top 32 bits are the XP
+     * seed we'd have after an enchantment there. We work out once which positions
+     * give each item the enchantments it wants, then search over orderings.
+     */
+
+    public static final int MAX_BATCH_SIZE = 8;
+
+    public static EnchantManipulationStatus manipulateEnchantmentsBatch(List<ItemAndEnchantmentsPredicate> targets) {
+        ClientPlayerEntity player = MinecraftClient.getInstance().player;
+
+        EnchantManipulationStatus status = manipulateEnchantmentsSanityCheck(player);
+        if (status != EnchantManipulationStatus.OK) {
+            return status;
+        }
+
+        List<ItemAndEnchantmentsPredicate> batch = new ArrayList<>(targets);
+        long seed = playerRand.getState();
+        boolean crackedPlayerSeed = TempRules.enchCrackState == EnumCrackState.CRACKED_PLAYER_SEED;
+        int currentBookshelves = enchantingTablePos == null ? 0
+                : Math.min(15, EnchantPowerCache.getEnchantPower(player.world, enchantingTablePos));
+        EnchantSearchOptions options = new EnchantSearchOptions(TempRules.enchSearchHorizon,
+                TempRules.enchMinBookshelves, TempRules.enchMaxBookshelves, currentBookshelves, 1);
+
+        CrackingService.Job<?> job = CrackingService.<List<BatchStep>>submit("enchCrack.job.manipulateBatch",
+                j -> findBatchManipulation(j, seed, crackedPlayerSeed, batch, options),
+                steps -> {
+                    if (steps == null) {
+                        ClientCommandManager.sendError(new TranslatableText(EnchantManipulationStatus.IMPOSSIBLE.getTranslation()));
+                        return;
+                    }
+                    if (playerRand.getState() != seed) {
+                        ClientCommandManager.sendError(new TranslatableText(EnchantManipulationStatus.RNG_CHANGED.getTranslation()));
+                        return;
+                    }
+                    EnchantManipulationStatus planStatus = manipulateEnchantmentsSanityCheck(player);
+                    if (planStatus != EnchantManipulationStatus.OK) {
+                        ClientCommandManager.sendError(new TranslatableText(planStatus.getTranslation()));
+                        return;
+                    }
+                    int totalThrows = 0;
+                    for (BatchStep step : steps)
+                        totalThrows += Math.max(0, step.plan.timesNeeded) + step.delay;
+                    ClientCommandManager.sendFeedback(new TranslatableText("enchCrack.batch.summary", steps.size(), totalThrows));
+
+                    LongTaskList taskList = new LongTaskList();
+                    for (int i = 0; i < steps.size(); i++) {
+                        BatchStep step = steps.get(i);
+                        addEnchantmentManipulationTasks(player, taskList, step.plan, batch.get(step.target).item, step.delay);
+                        if (i != steps.size() - 1)
+                            taskList.addTask(createWaitForEnchantmentTask(player, new TranslatableText("enchCrack.insn.enchant")));
+                    }
+                    TaskManager.addTask("enchantmentCracker", taskList);
+                });
+        if (job == null) {
+            return EnchantManipulationStatus.BUSY;
+        }
 
         return EnchantManipulationStatus.OK;
     }
 
+    // Called on the cracker worker. Returns the steps in the order they should be done, or null if there's no way to
+    // get all the enchantments within the search horizon
+    private static List<BatchStep> findBatchManipulation(CrackingService.Job<?> job, long seed, boolean crackedPlayerSeed,
+                                                         List<ItemAndEnchantmentsPredicate> targets,
+                                                         EnchantSearchOptions options) {
+        int targetCount = targets.size();
+        // enough for the horizon's worth of throws, plus a dummy and a real enchantment per item
+        int positions = 4 * options.horizon + 2 * targetCount + 1;
+        job.setTotal(positions);
+
+        // only the matching positions are kept, a dense table per target would take gigabytes at long horizons
+        BatchMatches[] matches = new BatchMatches[targetCount];
+        for (int target = 0; target < targetCount; target++)
+            matches[target] = new BatchMatches();
+        List<ForkJoinTask<BatchMatches[]>> chunks = new ArrayList<>();
+        for (int chunkStart = 0; chunkStart < positions; chunkStart += SEARCH_CHUNK_SIZE) {
+            int from = chunkStart;
+            int to = Math.min(positions, chunkStart + SEARCH_CHUNK_SIZE);
+            chunks.add(ForkJoinPool.commonPool().submit(() -> findBatchMatches(job, seed, from, to, targets, options)));
+        }
+        try {
+            // the chunks are in order, so appending them keeps the matches sorted
+            for (ForkJoinTask<BatchMatches[]> chunk : chunks) {
+                BatchMatches[] chunkMatches = chunk.join();
+                for (int target = 0; target < targetCount; target++)
+                    matches[target].addAll(chunkMatches[target]);
+            }
+        } finally {
+            for (ForkJoinTask<?> chunk : chunks) {
+                chunk.cancel(false);
+            }
+        }
+
+        // positions only ever increase, so by the time a node is polled nothing can reach it more cheaply
+        PriorityQueue<BatchNode> queue = new PriorityQueue<>(Comparator.comparingInt(node -> node.pos));
+        Map<Long, BatchNode> bestNodes = new HashMap<>();
+        BatchNode start = new BatchNode(0, 0, 0, 0, null, -1, null, 0);
+        queue.add(start);
+        int allTargets = (1 << targetCount) - 1;
+        BatchNode bestComplete = null;
+        while (!queue.isEmpty()) {
+            job.checkCancelled();
+            BatchNode node = queue.poll();
+            if (node != start && bestNodes.get(node.getKey()) != node)
+                continue;
+            if (bestComplete != null && node.throwCount > bestComplete.throwCount)
+                continue;
+            if (node.mask == allTargets) {
+                if (bestComplete == null || node.isCheaperThan(bestComplete))
+                    bestComplete = node;
+                continue;
+            }
+            // right at the start, the XP seed we have isn't one we can predict unless the player RNG was cracked from it
+            boolean canEnchantNow = node != start || !crackedPlayerSeed;
+            for (int target = 0; target < targetCount; target++) {
+                if ((node.mask & (1 << target)) != 0)
+                    continue;
+                int mask = node.mask | (1 << target);
+                int match = canEnchantNow ? matches[target].get(node.pos) : -1;
+                if (match != -1) {
+                    EnchantManipulationPlan plan = createBatchPlan(-1, match, options);
+                    offerBatchEnchantment(queue, bestNodes, matches, node, mask, node.pos + 1, node.throwCount,
+                            node.dummyCount, target, plan);
+                }
+                int matchPos = matches[target].next(node.pos + 1);
+                if (matchPos != -1) {
+                    int throwsNeeded = (matchPos - node.pos - 1) / 4;
+                    EnchantManipulationPlan plan = createBatchPlan(throwsNeeded, matches[target].get(matchPos), options);
+                    offerBatchEnchantment(queue, bestNodes, matches, node, mask, matchPos + 1,
+                            node.throwCount + throwsNeeded, node.dummyCount + 1, target, plan);
+                }
+            }
+        }
+        if (bestComplete == null)
+            return null;
+
+        List<BatchStep> steps = new ArrayList<>();
+        for (BatchNode node = bestComplete; node.prev != null; node = node.prev) {
+            steps.add(new BatchStep(node.target, node.plan, node.delay));
+        }
+        Collections.reverse(steps);
+        return steps;
+    }
+
+    private static BatchMatches[] findBatchMatches(CrackingService.Job<?> job, long seed, int from, int to,
+                                                   List<ItemAndEnchantmentsPredicate> targets,
+                                                   EnchantSearchOptions options) {
+        EnchantmentOutcomeTable[] outcomes = new EnchantmentOutcomeTable[targets.size()];
+        BatchMatches[] matches = new BatchMatches[targets.size()];
+        for (int target = 0; target < outcomes.length; target++) {
+            outcomes[target] = new EnchantmentOutcomeTable(new ItemStack(targets.get(target).item));
+            matches[target] = new BatchMatches();
+        }
+        int[] enchantLevels = new int[3];
+        long state = LCGRandom.advance(seed, from);
+        for (int q = from; q < to; q++, state = LCGRandom.step(state)) {
+            job.addProgress(1);
+            for (int target = 0; target < outcomes.length; target++) {
+                EnchantmentOutcomeTable table = outcomes[target];
+                table.setXPSeed((int) (state >>> 16));
+                int match = -1;
+                int bestChanges = Integer.MAX_VALUE;
+                for (int bookshelves = options.minBookshelves; bookshelves <= options.maxBookshelves; bookshelves++) {
+                    int changes = Math.abs(bookshelves - options.currentBookshelves);
+                    if (changes >= bestChanges)
+                        continue;
+                    table.calculateLevels(bookshelves, enchantLevels);
+                    for (int slot = 0; slot < 3; slot++) {
+                        int offset = table.getOutcomeOffset(slot, enchantLevels[slot]);
+                        int size = table.getOutcomeSize(slot, enchantLevels[slot]);
+                        if (targets.get(target).test(table.getOutcomes(), offset, size)) {
+                            match = (bookshelves << 2) | slot;
+                            bestChanges = changes;
+                            break;
+                        }
+                    }
+                }
+                if (match != -1)
+                    matches[target].add(q, match);
+            }
+        }
+        return matches;
+    }
+
+    private static EnchantManipulationPlan createBatchPlan(int timesNeeded, int match, EnchantSearchOptions options) {
+        int bookshelves = match >> 2;
+        int cost = Math.max(0, timesNeeded) + Math.abs(bookshelves - options.currentBookshelves);
+        return new EnchantManipulationPlan(timesNeeded, bookshelves, match & 3, cost);
+    }
+
+    // Offers the node after enchanting a target, which would be at the given position
+    private static void offerBatchEnchantment(PriorityQueue<BatchNode> queue, Map<Long, BatchNode> bestNodes,
+                                              BatchMatches[] matches, BatchNode prev, int mask, int pos, int throwCount,
+                                              int dummyCount, int target, EnchantManipulationPlan plan) {
+        offerBatchNode(queue, bestNodes, new BatchNode(mask, pos, throwCount, dummyCount, prev, target, plan, 0));
+        // throwing items before the enchantment doesn't change its outcome, but moves where the next XP seed comes from.
+        // That's worth it if the next target can then be enchanted without a dummy enchantment
+        for (int next = 0; next < matches.length; next++) {
+            if ((mask & (1 << next)) != 0)
+                continue;
+            int delayedPos = matches[next].next(pos);
+            if (delayedPos > pos) {
+                int delay = (delayedPos - pos) / 4;
+                offerBatchNode(queue, bestNodes, new BatchNode(mask, delayedPos, throwCount + delay, dummyCount, prev,
+                        target, plan, delay));
+            }
+        }
+    }
+
+    private static void offerBatchNode(PriorityQueue<BatchNode> queue, Map<Long, BatchNode> bestNodes, BatchNode node) {
+        BatchNode existing = bestNodes.get(node.getKey());
+        if (existing == null || node.isCheaperThan(existing)) {
+            bestNodes.put(node.getKey(), node);
+            queue.add(node);
+        }
+    }
+
+    /**
+     * The positions in the RNG stream at which one target gets its enchantments, along with the bookshelves and slot
+     * which give them to it, packed as bookshelves << 2 | slot. Throwing items only moves along the stream 4 positions
+     * at a time, so the positions are kept in a separate sorted list for each position mod 4.
+     */
+    private static final class BatchMatches {
+        private final int[][] positions = new int[4][];
+        private final byte[][] values = new byte[4][];
+        private final int[] sizes = new int[4];
+
+        private void add(int pos, int value) {
+            int list = pos & 3;
+            int size = sizes[list];
+            if (positions[list] == null) {
+                positions[list] = new int[16];
+                values[list] = new byte[16];
+            } else if (size == positions[list].length) {
+                positions[list] = Arrays.copyOf(positions[list], size * 2);
+                values[list] = Arrays.copyOf(values[list], size * 2);
+            }
+            positions[list][size] = pos;
+            values[list][size] = (byte) value;
+            sizes[list] = size + 1;
+        }
+
+        // the other matches must all come after these ones
+        private void addAll(BatchMatches other) {
+            for (int list = 0; list < 4; list++) {
+                for (int i = 0; i < other.sizes[list]; i++)
+                    add(other.positions[list][i], other.values[list][i]);
+            }
+        }
+
+        /**
+         * Returns the bookshelves and slot matching at the given position, or -1 if it doesn't match
+         */
+        private int get(int pos) {
+            int list = pos & 3;
+            if (sizes[list] == 0)
+                return -1;
+            int index = Arrays.binarySearch(positions[list], 0, sizes[list], pos);
+            return index < 0 ? -1 : values[list][index];
+        }
+
+        /**
+         * Returns the first matching position at or after the given one which can be reached from it by throwing
+         * items, or -1 if there is none
+         */
+        private int next(int pos) {
+            int list = pos & 3;
+            if (sizes[list] == 0)
+                return -1;
+            int index = Arrays.binarySearch(positions[list], 0, sizes[list], pos);
+            if (index < 0)
+                index = -index - 1;
+            return index == sizes[list] ? -1 : positions[list][index];
+        }
+    }
+
+    private static final class BatchNode {
+        // which targets have been enchanted
+        private final int mask;
+        // the position in the RNG stream whose XP seed we'll have next
+        private final int pos;
+        private final int throwCount;
+        private final int dummyCount;
+        private final BatchNode prev;
+        private final int target;
+        private final EnchantManipulationPlan plan;
+        // items thrown after the plan, just before the real enchantment
+        private final int delay;
+
+        private BatchNode(int mask, int pos, int throwCount, int dummyCount, BatchNode prev, int target,
+                          EnchantManipulationPlan plan, int delay) {
+            this.mask = mask;
+            this.pos = pos;
+            this.throwCount = throwCount;
+            this.dummyCount = dummyCount;
+            this.prev = prev;
+            this.target = target;
+            this.plan = plan;
+            this.delay = delay;
+        }
+
+        private long getKey() {
+            return ((long) pos << MAX_BATCH_SIZE) | mask;
+        }
+
+        // throws take the longest, then each dummy enchantment is another trip to the table
+        private boolean isCheaperThan(BatchNode other) {
+            if (throwCount != other.throwCount)
+                return throwCount < other.throwCount;
+            return dummyCount < other.dummyCount;
+        }
+    }
+
+    private static final class BatchStep {
+        // the index of the target in the batch
+        private final int target;
+        private final EnchantManipulationPlan plan;
+        private final int delay;
+
+        private BatchStep(int target, EnchantManipulationPlan plan, int delay) {
+            this.target = target;
+            this.plan = plan;
+            this.delay = delay;
+        }
+    }
+
     /*
     public static EnchantManipulationStatus throwItemsUntil(Predicate<Random> condition) {
         return throwItemsUntil(condition, Integer.MAX_VALUE);
     }
     */
 
+    /**
+     * Returns the future of the maintained player RNG, for searching how many throws it takes to get somewhere. Only
+     * meaningful while the player RNG is cracked and not forked
+     */
+    public static PlayerRNGFuture getPlayerRNGFuture() {
+        return new PlayerRNGFuture(playerRand.getState());
+    }
+
     public static EnchantManipulationStatus throwItemsUntil(Predicate<Random> condition, int max) {
         if (TempRules.enchCrackState != EnumCrackState.CRACKED)
             return EnchantManipulationStatus.NOT_CRACKED;
+        if (playerRandForks != null)
+            return EnchantManipulationStatus.RNG_UNCERTAIN;
 
-        long seed = getSeed(playerRand);
-        Random rand = new Random(seed ^ MULTIPLIER);
-
-        int itemsNeeded = 0;
-        for (; itemsNeeded <= max && !condition.test(rand); itemsNeeded++) {
-            for (int i = 0; i < 4; i++)
-                seed = (seed * MULTIPLIER + ADDEND) & MASK;
-            rand.setSeed(seed ^ MULTIPLIER);
-        }
-        if (itemsNeeded > max)
+        // the condition is tested on several threads at once
+        int itemsNeeded = getPlayerRNGFuture().findFirst(max, condition);
+        if (itemsNeeded == -1)
             return EnchantManipulationStatus.IMPOSSIBLE;
 
+        CrackMetrics.onThrowsPlanned(itemsNeeded);
         for (int i = 0; i < itemsNeeded; i++) {
             EnchantManipulationStatus status = throwItem();
             if (status != EnchantManipulationStatus.OK)
                 return status;
+            CrackMetrics.onThrowExecuted();
         }
 
         return EnchantManipulationStatus.OK;
@@ -639,6 +1669,9 @@ public class EnchantmentCracker {
         ClientPlayerEntity player = MinecraftClient.getInstance().player;
 
         EnchantManipulationStatus status = manipulateEnchantmentsSanityCheck(player);
+        // every fork can follow a throw just as well
+        if (status == EnchantManipulationStatus.RNG_UNCERTAIN)
+            status = EnchantManipulationStatus.OK;
         if (status != EnchantManipulationStatus.OK && status != EnchantManipulationStatus.NOT_CRACKED)
             return status;
         Slot matchingSlot = player.container.slotList.stream()
@@ -648,9 +1681,7 @@ public class EnchantmentCracker {
         }
         if (status != EnchantManipulationStatus.NOT_CRACKED) {
             expectedThrows++;
-            for (int j = 0; j < 4; j++) {
-                playerRand.nextInt();
-            }
+            recordRNGEvent(PlayerRNGLedger.EventType.DROP_ITEM, 0, 0);
         }
         MinecraftClient.getInstance().interactionManager.method_2906(player.container.syncId,
                 matchingSlot.id, 0, SlotActionType.THROW, player);
@@ -660,11 +1691,17 @@ public class EnchantmentCracker {
 
     public static long singlePlayerCrackRNG() {
         ServerPlayerEntity serverPlayer = MinecraftClient.getInstance().getServer().getPlayerManager().getPlayer(MinecraftClient.getInstance().player.getUuid());
+        // the server player's RNG is a plain java.util.Random, so this is the one place we still need reflection
         long seed = getSeed(serverPlayer.getRand());
-        playerRand.setSeed(seed ^ MULTIPLIER);
+        playerRand.setState(seed);
+        playerRandForks = null;
+        forkXPSeeds = null;
+        clearPendingThrows();
+        rngLedger.clear();
+        restoredXPSeedUnverified = false;
+        restoredPlayerSeedUnverified = false;
 
-        possibleXPSeeds.clear();
-        possibleXPSeeds.add(serverPlayer.getEnchantmentTableSeed());
+        possibleXPSeeds.set(serverPlayer.getEnchantmentTableSeed());
 
         TempRules.enchCrackState = EnumCrackState.CRACKED;
         return seed;
@@ -676,7 +1713,10 @@ public class EnchantmentCracker {
         NOT_CRACKED("notCracked"),
         NOT_ON_GROUND("notOnGround"),
         EMPTY_INVENTORY("emptyInventory"),
-        IMPOSSIBLE("impossible");
+        IMPOSSIBLE("impossible"),
+        BUSY("busy"),
+        RNG_CHANGED("rngChanged"),
+        RNG_UNCERTAIN("rngUncertain");
         // @formatter:on
 
         private String translation;
@@ -696,28 +1736,6 @@ public class EnchantmentCracker {
         return TempRules.getEnchantingPrediction();
     }
 
-    private static int getEnchantPower(World world, BlockPos tablePos) {
-        float power = 0;
-
-        for (int dz = -1; dz <= 1; dz++) {
-            for (int dx = -1; dx <= 1; dx++) {
-                if ((dz != 0 || dx != 0) && world.isAir(tablePos.add(dx, 0, dz))
-                        && world.isAir(tablePos.add(dx, 1, dz))) {
-                    power += ForgeHooks.instance().ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 0, dz * 2));
-                    power += ForgeHooks.instance().ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 1, dz * 2));
-                    if (dx != 0 && dz != 0) {
-                        power += ForgeHooks.instance().ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 0, dz));
-                        power += ForgeHooks.instance().ForgeHooks_getEnchantPower(world, tablePos.add(dx * 2, 1, dz));
-                        power += ForgeHooks.instance().ForgeHooks_getEnchantPower(world, tablePos.add(dx, 0, dz * 2));
-                        power += ForgeHooks.instance().ForgeHooks_getEnchantPower(world, tablePos.add(dx, 1, dz * 2));
-                    }
-                }
-            }
-        }
-
-        return (int) power;
-    }
-
     private static List<InfoEnchantment> getEnchantmentList(Random rand, int xpSeed, ItemStack stack, int enchantSlot,
                                                             int level) {
         rand.setSeed(xpSeed + enchantSlot);
@@ -736,7 +1754,7 @@ public class EnchantmentCracker {
         EnumCrackState crackState = TempRules.enchCrackState;
         EnchantingTableContainer enchContainer = (EnchantingTableContainer) MinecraftClient.getInstance().player.container;
 
-        if (crackState != EnumCrackState.CRACKED_ENCH_SEED && crackState != EnumCrackState.CRACKED) {
+        if ((crackState != EnumCrackState.CRACKED_ENCH_SEED && crackState != EnumCrackState.CRACKED) || possibleXPSeeds.size() != 1) {
             if (enchContainer.enchantmentId[slot] == -1) {
                 // if we haven't cracked it, and there's no clue, then we can't give any
                 // information about the enchantment
@@ -748,15 +1766,33 @@ public class EnchantmentCracker {
                                 enchContainer.enchantmentLevel[slot]));
             }
         } else {
-            // return the enchantments using our cracked seed
-            Random rand = new Random();
-            int xpSeed = possibleXPSeeds.iterator().next();
+            // return the enchantments using our cracked seed, reusing the last prediction for this slot if nothing changed
+            int xpSeed = possibleXPSeeds.get(0);
             ItemStack enchantingStack = enchContainer.getSlot(0).getStack();
             int enchantLevels = enchContainer.enchantmentPower[slot];
-            return getEnchantmentList(rand, xpSeed, enchantingStack, slot, enchantLevels);
+            if (predictedEnchantments[slot] == null || predictedXPSeeds[slot] != xpSeed
+                    || predictedStacks[slot] != enchantingStack || predictedLevels[slot] != enchantLevels) {
+                predictedEnchantments[slot] = Collections.unmodifiableList(
+                        getEnchantmentList(new LCGRandom(), xpSeed, enchantingStack, slot, enchantLevels));
+                predictedXPSeeds[slot] = xpSeed;
+                predictedStacks[slot] = enchantingStack;
+                predictedLevels[slot] = enchantLevels;
+            }
+            return predictedEnchantments[slot];
         }
     }
 
+    // the last prediction for each slot, keyed by the XP seed, the item stack's identity and the slot's level
+    private static final List<InfoEnchantment>[] predictedEnchantments = createPredictionArray();
+    private static final int[] predictedXPSeeds = new int[3];
+    private static final ItemStack[] predictedStacks = new ItemStack[3];
+    private static final int[] predictedLevels = new int[3];
+
+    @SuppressWarnings("unchecked")
+    private static List<InfoEnchantment>[] createPredictionArray() {
+        return (List<InfoEnchantment>[]) new List[3];
+    }
+
     private static final Field RANDOM_SEED;
     static {
         try {
@@ -767,6 +1803,8 @@ public class EnchantmentCracker {
         RANDOM_SEED.setAccessible(true);
     }
     public static long getSeed(Random rand) {
+        if (rand instanceof LCGRandom)
+            return ((LCGRandom) rand).getState();
         try {
             return ((AtomicLong) RANDOM_SEED.get(rand)).get();
         } catch (ReflectiveOperationException e) {
@@ -0,0 +1,289 @@
+package net.earthcomputer.clientcommands.features;
+
+import net.minecraft.enchantment.Enchantment;
+import net.minecraft.enchantment.EnchantmentHelper;
+import net.minecraft.enchantment.InfoEnchantment;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.registry.Registry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates the enchantments an enchanting table would give one item, without allocating.
+ *
+ * EnchantmentHelper.getEnchantments walks the whole enchantment registry and builds a list of InfoEnchantments for
+ * every call, which adds up when searching through thousands of XP seeds. Instead, the enchantments which can be
+ * chosen at each power are looked up once per item and kept in primitive arrays, along with which enchantments are
+ * compatible with each other. The random draws are then replayed in exactly the same order as vanilla.
+ *
+ * Outcomes are encoded as <code>(rawId << 8) | level</code>. Within one XP seed the outcome only depends on the slot
+ * and level, so it is only generated once even though several bookshelf counts may lead to the same level.
+ *
+ * Not thread safe, each thread should use its own table.
+ */
+public final class EnchantmentOutcomeTable {
+
+    // slot levels go up to 30, plus one for the level 0 that an unavailable slot has
+    private static final int MAX_SLOT_LEVEL = 30;
+    // a modded table can go past the vanilla maximum, the last such level for each slot is kept after the others
+    private static final int OVERFLOW_INDEX = 3 * (MAX_SLOT_LEVEL + 1);
+
+    private final ItemStack stack;
+    private final boolean isBook;
+    private final int enchantability;
+    private final int maxOutcomeSize;
+
+    // indexed by power, then by candidate
+    private int[][] candidateEnchantments = new int[0][];
+    private int[][] candidateWeights = new int[0][];
+    // indexed by raw id
+    private final boolean[][] compatible;
+
+    private final LCGRandom rand = new LCGRandom();
+    private int xpSeed;
+    // indexed by slot * (MAX_SLOT_LEVEL + 1) + level, -1 if not generated yet for this XP seed
+    private final int[] outcomeSizes = new int[OVERFLOW_INDEX + 3];
+    private final int[] overflowLevels = new int[3];
+    // the state of the RNG after each generation, which the clue is drawn from
+    private final long[] clueStates = new long[outcomeSizes.length];
+    private final int[] outcomes;
+
+    // scratch space for a generation
+    private int[] remainingEnchantments = new int[0];
+    private int[] remainingWeights = new int[0];
+
+    public EnchantmentOutcomeTable(ItemStack stack) {
+        this(stack, stack.getItem().getEnchantability(), stack.getItem() == Items.BOOK, createCompatibilityTable());
+    }
+
+    /**
+     * Creates a table from the given candidates rather than looking them up in the registries, so that it can be used
+     * without bootstrapping the game. The candidate arrays are indexed by power and must cover every power the item can
+     * reach. The raw ids in the candidates index the compatibility table
+     */
+    EnchantmentOutcomeTable(int enchantability, boolean isBook, boolean[][] compatible, int[][] candidateEnchantments,
+                            int[][] candidateWeights) {
+        this(null, enchantability, isBook, compatible);
+        this.candidateEnchantments = candidateEnchantments;
+        this.candidateWeights = candidateWeights;
+        for (int[] candidates : candidateEnchantments)
+            ensureScratchSpace(candidates.length);
+    }
+
+    private EnchantmentOutcomeTable(ItemStack stack, int enchantability, boolean isBook, boolean[][] compatible) {
+        this.stack = stack;
+        this.isBook = isBook;
+        this.enchantability = enchantability;
+        this.compatible = compatible;
+        // every chosen enchantment rules out at least itself
+        maxOutcomeSize = compatible.length;
+        outcomes = new int[outcomeSizes.length * maxOutcomeSize];
+        Arrays.fill(outcomeSizes, -1);
+    }
+
+    private static boolean[][] createCompatibilityTable() {
+        int enchantmentCount = 0;
+        for (Enchantment enchantment : Registry.ENCHANTMENT)
+            enchantmentCount = Math.max(enchantmentCount, Registry.ENCHANTMENT.getRawId(enchantment) + 1);
+        boolean[][] compatible = new boolean[enchantmentCount][enchantmentCount];
+        for (Enchantment a : Registry.ENCHANTMENT) {
+            for (Enchantment b : Registry.ENCHANTMENT) {
+                compatible[Registry.ENCHANTMENT.getRawId(a)][Registry.ENCHANTMENT.getRawId(b)] = a.isDifferent(b);
+            }
+        }
+        return compatible;
+    }
+
+    public int getMaxOutcomeSize() {
+        return maxOutcomeSize;
+    }
+
+    /**
+     * Switches to a new XP seed, forgetting the outcomes of the last one
+     */
+    public void setXPSeed(int xpSeed) {
+        if (this.xpSeed != xpSeed)
+            Arrays.fill(outcomeSizes, -1);
+        this.xpSeed = xpSeed;
+    }
+
+    /**
+     * Calculates the levels shown in the three slots with the given number of bookshelves
+     */
+    public void calculateLevels(int power, int[] levels) {
+        rand.setSeed(xpSeed);
+        for (int slot = 0; slot < 3; slot++) {
+            int level = calculateLevel(slot, power);
+            if (level < slot + 1) {
+                level = 0;
+            }
+            levels[slot] = level;
+        }
+    }
+
+    // same as EnchantmentHelper.calculateEnchantmentPower
+    private int calculateLevel(int slot, int power) {
+        if (enchantability <= 0)
+            return 0;
+        if (power > 15)
+            power = 15;
+        int level = rand.nextInt(8) + 1 + (power >> 1) + rand.nextInt(power + 1);
+        if (slot == 0)
+            return Math.max(level / 3, 1);
+        else if (slot == 1)
+            return level * 2 / 3 + 1;
+        else
+            return Math.max(level, power * 2);
+    }
+
+    /**
+     * Returns the offset into {@link #getOutcomes()} of the enchantments for the given slot and level. The number of
+     * enchantments is given by {@link #getOutcomeSize(int, int)}
+     */
+    public int getOutcomeOffset(int slot, int level) {
+        return getGeneratedIndex(slot, level) * maxOutcomeSize;
+    }
+
+    public int getOutcomeSize(int slot, int level) {
+        return outcomeSizes[getGeneratedIndex(slot, level)];
+    }
+
+    /**
+     * Returns the enchantment the table shows as a clue for the given slot and level, encoded the same way as the
+     * outcomes, or -1 if there are no enchantments. Same as the clue picked in EnchantingTableContainer.onContentChanged
+     */
+    public int getClue(int slot, int level) {
+        int index = getGeneratedIndex(slot, level);
+        int size = outcomeSizes[index];
+        if (size == 0)
+            return -1;
+        rand.setState(clueStates[index]);
+        return outcomes[index * maxOutcomeSize + rand.nextInt(size)];
+    }
+
+    private int getGeneratedIndex(int slot, int level) {
+        int index;
+        if (level <= MAX_SLOT_LEVEL) {
+            index = slot * (MAX_SLOT_LEVEL + 1) + level;
+        } else {
+            index = OVERFLOW_INDEX + slot;
+            if (overflowLevels[slot] != level) {
+                overflowLevels[slot] = level;
+                outcomeSizes[index] = -1;
+            }
+        }
+        if (outcomeSizes[index] == -1) {
+            outcomeSizes[index] = generate(slot, level, index * maxOutcomeSize);
+            clueStates[index] = rand.getState();
+        }
+        return index;
+    }
+
+    public int[] getOutcomes() {
+        return outcomes;
+    }
+
+    public static int getEnchantmentId(int encoded) {
+        return encoded >>> 8;
+    }
+
+    public static int getEnchantmentLevel(int encoded) {
+        return encoded & 0xff;
+    }
+
+    // mirrors EnchantmentCracker.getEnchantmentList and EnchantmentHelper.getEnchantments
+    private int generate(int slot, int level, int offset) {
+        rand.setSeed(xpSeed + slot);
+        if (enchantability <= 0)
+            return 0;
+
+        level += 1 + rand.nextInt(enchantability / 4 + 1) + rand.nextInt(enchantability / 4 + 1);
+        float f = (rand.nextFloat() + rand.nextFloat() - 1.0F) * 0.15F;
+        level = MathHelper.clamp(Math.round((float) level + (float) level * f), 1, Integer.MAX_VALUE);
+
+        ensureCandidates(level);
+        int[] candidates = candidateEnchantments[level];
+        int remaining = candidates.length;
+        if (remaining == 0)
+            return 0;
+        System.arraycopy(candidates, 0, remainingEnchantments, 0, remaining);
+        System.arraycopy(candidateWeights[level], 0, remainingWeights, 0, remaining);
+
+        int size = 0;
+        int chosen = pickWeighted(remaining);
+        outcomes[offset + size++] = chosen;
+        while (rand.nextInt(50) <= level) {
+            // remove the enchantments incompatible with the last one, keeping the order
+            boolean[] compatibleWithLast = compatible[getEnchantmentId(chosen)];
+            int newRemaining = 0;
+            for (int i = 0; i < remaining; i++) {
+                if (compatibleWithLast[getEnchantmentId(remainingEnchantments[i])]) {
+                    remainingEnchantments[newRemaining] = remainingEnchantments[i];
+                    remainingWeights[newRemaining] = remainingWeights[i];
+                    newRemaining++;
+                }
+            }
+            remaining = newRemaining;
+            if (remaining == 0)
+                break;
+            chosen = pickWeighted(remaining);
+            outcomes[offset + size++] = chosen;
+            level /= 2;
+        }
+
+        if (isBook && size > 1) {
+            int removed = rand.nextInt(size);
+            System.arraycopy(outcomes, offset + removed + 1, outcomes, offset + removed, size - removed - 1);
+            size--;
+        }
+        return size;
+    }
+
+    // same as WeightedPicker.getRandom
+    private int pickWeighted(int count) {
+        int totalWeight = 0;
+        for (int i = 0; i < count; i++)
+            totalWeight += remainingWeights[i];
+        int value = rand.nextInt(totalWeight);
+        for (int i = 0; i < count; i++) {
+            value -= remainingWeights[i];
+            if (value < 0)
+                return remainingEnchantments[i];
+        }
+        throw new AssertionError();
+    }
+
+    private void ensureCandidates(int power) {
+        if (power < candidateEnchantments.length)
+            return;
+        if (stack == null)
+            throw new IllegalStateException("No candidates given for power " + power);
+        int oldLength = candidateEnchantments.length;
+        candidateEnchantments = Arrays.copyOf(candidateEnchantments, power + 1);
+        candidateWeights = Arrays.copyOf(candidateWeights, power + 1);
+        for (int p = oldLength; p <= power; p++) {
+            List<InfoEnchantment> candidates = EnchantmentHelper.getHighestApplicableEnchantmentsAtPower(p, stack, false);
+            int[] enchantments = new int[candidates.size()];
+            int[] weights = new int[candidates.size()];
+            for (int i = 0; i < enchantments.length; i++) {
+                InfoEnchantment candidate = candidates.get(i);
+                enchantments[i] = (Registry.ENCHANTMENT.getRawId(candidate.enchantment) << 8) | candidate.level;
+                weights[i] = candidate.enchantment.getWeight().getWeight();
+            }
+            candidateEnchantments[p] = enchantments;
+            candidateWeights[p] = weights;
+            ensureScratchSpace(enchantments.length);
+        }
+    }
+
+    private void ensureScratchSpace(int candidateCount) {
+        if (candidateCount > remainingEnchantments.length) {
+            remainingEnchantments = new int[candidateCount];
+            remainingWeights = new int[candidateCount];
+        }
+    }
+
+}
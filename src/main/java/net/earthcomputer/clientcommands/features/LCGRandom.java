@@ -0,0 +1,162 @@
+package net.earthcomputer.clientcommands.features;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} which produces exactly the same numbers as java.util.Random, but keeps its state in a plain long.
+ *
+ * java.util.Random keeps its state in an AtomicLong and updates it with a compare-and-set on every call, and the only
+ * way to read the state back out is reflection. The crackers only ever use an RNG from one thread at a time, and need
+ * to read, write and jump the state constantly, so this class exposes the state directly instead. It still extends
+ * Random so that it can be passed to vanilla code such as EnchantmentHelper.
+ *
+ * Not thread safe.
+ */
+public class LCGRandom extends Random {
+
+    public static final long MULTIPLIER = 0x5DEECE66DL;
+    public static final long ADDEND = 0xBL;
+    public static final long MASK = (1L << 48) - 1;
+
+    // JUMP_MULTIPLIERS[k] * state + JUMP_ADDENDS[k] is 2^k steps after state
+    private static final long[] JUMP_MULTIPLIERS = new long[48];
+    private static final long[] JUMP_ADDENDS = new long[48];
+    static {
+        long multiplier = MULTIPLIER;
+        long addend = ADDEND;
+        for (int k = 0; k < 48; k++) {
+            JUMP_MULTIPLIERS[k] = multiplier;
+            JUMP_ADDENDS[k] = addend;
+            // doubling the jump: x -> m(mx + c) + c
+            addend = (addend * (multiplier + 1)) & MASK;
+            multiplier = (multiplier * multiplier) & MASK;
+        }
+    }
+
+    // no initializers, Random's constructor calls setSeed before they would run
+    private long state;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    public LCGRandom() {
+        super();
+    }
+
+    public LCGRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Creates an RNG with the given internal state, as opposed to a seed which gets scrambled first
+     */
+    public static LCGRandom withState(long state) {
+        LCGRandom rand = new LCGRandom();
+        rand.setState(state);
+        return rand;
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+        haveNextNextGaussian = false;
+    }
+
+    /**
+     * Returns the internal state, which is what the seed of a java.util.Random holds
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+        haveNextNextGaussian = false;
+    }
+
+    /**
+     * Moves the state on by the given number of steps, or back if negative, with at most 48 multiplications however
+     * far the jump is
+     */
+    public void advance(long steps) {
+        state = advance(state, steps);
+    }
+
+    /**
+     * Returns the state the given number of steps after the given one. Since the LCG has a period of 2^48, a negative
+     * number of steps goes backwards
+     */
+    public static long advance(long state, long steps) {
+        steps &= MASK;
+        for (int bit = 0; steps != 0; bit++, steps >>>= 1) {
+            if ((steps & 1) != 0)
+                state = (state * JUMP_MULTIPLIERS[bit] + JUMP_ADDENDS[bit]) & MASK;
+        }
+        return state;
+    }
+
+    /**
+     * Returns a precomputed jump of the given number of steps, for when the same distance is jumped many times
+     */
+    public static Jump jump(long steps) {
+        long multiplier = 1;
+        long addend = 0;
+        steps &= MASK;
+        for (int bit = 0; steps != 0; bit++, steps >>>= 1) {
+            if ((steps & 1) != 0) {
+                multiplier = (multiplier * JUMP_MULTIPLIERS[bit]) & MASK;
+                addend = (addend * JUMP_MULTIPLIERS[bit] + JUMP_ADDENDS[bit]) & MASK;
+            }
+        }
+        return new Jump(multiplier, addend);
+    }
+
+    /**
+     * n steps of the LCG compose into a single affine map, state -> multiplier * state + addend
+     */
+    public static final class Jump {
+        private final long multiplier;
+        private final long addend;
+
+        private Jump(long multiplier, long addend) {
+            this.multiplier = multiplier;
+            this.addend = addend;
+        }
+
+        public long apply(long state) {
+            return (state * multiplier + addend) & MASK;
+        }
+    }
+
+    /**
+     * Returns the state after the given one
+     */
+    public static long step(long state) {
+        return (state * MULTIPLIER + ADDEND) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    // same as Random, which keeps its own cached value we can't reset
+    @Override
+    public double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+}
@@ -0,0 +1,119 @@
+package net.earthcomputer.clientcommands.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Answers questions about the player RNG's future, in terms of how many items would have to be thrown to get there.
+ *
+ * Any future state is reached directly with a jump rather than by stepping through every throw before it, so searches
+ * over a horizon are split into chunks which are tested concurrently in the common fork-join pool. Conditions are
+ * tested against a Random which holds the state after some number of throws, and are free to draw from it. Each call
+ * gets its own Random, but the conditions themselves must be safe to call from several threads at once.
+ */
+public final class PlayerRNGFuture {
+
+    // the player RNG calls made by throwing an item
+    private static final int THROW_STEPS = 4;
+    private static final LCGRandom.Jump THROW_JUMP = LCGRandom.jump(THROW_STEPS);
+    private static final int CHUNK_SIZE = 64;
+    // below this many throws, it's not worth handing the search to other threads
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+
+    private final long state;
+
+    public PlayerRNGFuture(long state) {
+        this.state = state & LCGRandom.MASK;
+    }
+
+    /**
+     * Returns the state of the player RNG after the given number of throws
+     */
+    public long getStateAfterThrows(int throwCount) {
+        return LCGRandom.advance(state, (long) THROW_STEPS * throwCount);
+    }
+
+    /**
+     * Returns a new Random holding the state of the player RNG after the given number of throws
+     */
+    public Random getRandomAfterThrows(int throwCount) {
+        return LCGRandom.withState(getStateAfterThrows(throwCount));
+    }
+
+    /**
+     * Finds the fewest throws, up to and including max, after which each condition in turn holds for one more throw:
+     * the first holds after n throws, the second after n + 1 throws, and so on. With a single condition, this is just
+     * the first throw count at which it holds.
+     *
+     * @return The number of throws, or -1 if there is none within max
+     */
+    @SafeVarargs
+    public final int findFirst(int max, Predicate<Random>... conditions) {
+        if (conditions.length == 0)
+            throw new IllegalArgumentException("No conditions to test");
+        if (max < 0)
+            return -1;
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (max < PARALLEL_THRESHOLD || pool.getParallelism() <= 1)
+            return findFirst(0, max + 1L, conditions, new AtomicInteger(Integer.MAX_VALUE));
+
+        // search a few chunks per thread at a time, so an unbounded search doesn't queue up the whole horizon at once
+        long waveSize = (long) CHUNK_SIZE * pool.getParallelism() * 4;
+        AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+        for (long waveStart = 0; waveStart <= max; waveStart += waveSize) {
+            long waveEnd = Math.min(max + 1L, waveStart + waveSize);
+            List<ForkJoinTask<Integer>> chunks = new ArrayList<>();
+            for (long chunkStart = waveStart; chunkStart < waveEnd; chunkStart += CHUNK_SIZE) {
+                long from = chunkStart;
+                long to = Math.min(waveEnd, chunkStart + CHUNK_SIZE);
+                chunks.add(pool.submit(() -> findFirst(from, to, conditions, found)));
+            }
+            try {
+                // the chunks are in order, so the first match is the fewest throws
+                for (ForkJoinTask<Integer> chunk : chunks) {
+                    int throwCount = chunk.join();
+                    if (throwCount != -1)
+                        return throwCount;
+                }
+            } finally {
+                for (ForkJoinTask<Integer> chunk : chunks) {
+                    chunk.cancel(false);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int findFirst(long from, long to, Predicate<Random>[] conditions, AtomicInteger found) {
+        LCGRandom rand = new LCGRandom();
+        long throwState = LCGRandom.advance(state, THROW_STEPS * from);
+        for (long i = from; i < to; i++) {
+            // a chunk before this one has already found something
+            if (i > found.get())
+                return -1;
+            if (test(rand, throwState, conditions)) {
+                found.accumulateAndGet((int) i, Math::min);
+                return (int) i;
+            }
+            throwState = THROW_JUMP.apply(throwState);
+        }
+        return -1;
+    }
+
+    private static boolean test(LCGRandom rand, long throwState, Predicate<Random>[] conditions) {
+        for (Predicate<Random> condition : conditions) {
+            rand.setState(throwState);
+            if (!condition.test(rand))
+                return false;
+            throwState = THROW_JUMP.apply(throwState);
+        }
+        return true;
+    }
+
+}
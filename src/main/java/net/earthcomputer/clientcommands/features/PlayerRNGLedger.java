@@ -0,0 +1,149 @@
+package net.earthcomputer.clientcommands.features;
+
+/**
+ * An append-only record of the most recent uses of the player RNG, which can be replayed against any RNG state.
+ *
+ * The events are kept in a ring buffer of primitive arrays, so recording one never allocates, and only the last
+ * {@link #CAPACITY} are remembered. Events are numbered from 0 in the order they were recorded, and the numbers keep
+ * counting up after old events have been overwritten. An event whose RNG use isn't known exactly can still be
+ * recorded, but can't be replayed; the caller is expected to fork its candidates at that point instead.
+ */
+public final class PlayerRNGLedger {
+
+    public static final int CAPACITY = 256;
+
+    public enum EventType {
+        /** A single nextInt(), e.g. from an anvil or Bane of Arthropods */
+        NEXT_INT,
+        /** Four calls, for the random motion of a thrown item */
+        DROP_ITEM,
+        /** An enchantment, which draws the next XP seed with nextInt() */
+        ENCHANT,
+        /** Unbreaking on a tool, one nextInt(level + 1) per point of damage */
+        UNBREAKING,
+        /** Unbreaking on armor, which only rolls if a nextFloat() comes out at least 0.6 */
+        UNBREAKING_ARMOR,
+        /** Unbreaking with an amount of damage we don't know, which can't be replayed */
+        UNBREAKING_UNCERTAIN
+    }
+
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    private final long[] ticks = new long[CAPACITY];
+    private final byte[] types = new byte[CAPACITY];
+    private final int[] amounts = new int[CAPACITY];
+    private final int[] levels = new int[CAPACITY];
+    private long eventCount = 0;
+
+    /**
+     * Records an event, returning its number
+     */
+    public long append(long tick, EventType type, int amount, int level) {
+        int index = (int) (eventCount % CAPACITY);
+        ticks[index] = tick;
+        types[index] = (byte) type.ordinal();
+        amounts[index] = amount;
+        levels[index] = level;
+        return eventCount++;
+    }
+
+    /**
+     * Returns the number the next event will get, i.e. how many events have ever been recorded
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the number of the oldest event which is still remembered
+     */
+    public long getOldestEvent() {
+        return Math.max(0, eventCount - CAPACITY);
+    }
+
+    public EventType getType(long event) {
+        return EVENT_TYPES[types[checkIndex(event)]];
+    }
+
+    public long getTick(long event) {
+        return ticks[checkIndex(event)];
+    }
+
+    public int getAmount(long event) {
+        return amounts[checkIndex(event)];
+    }
+
+    public int getLevel(long event) {
+        return levels[checkIndex(event)];
+    }
+
+    public void clear() {
+        eventCount = 0;
+    }
+
+    /**
+     * Steps the given RNG through every event from the given one onwards
+     */
+    public void replay(LCGRandom rand, long fromEvent) {
+        for (long event = fromEvent; event < eventCount; event++) {
+            int index = checkIndex(event);
+            apply(rand, EVENT_TYPES[types[index]], amounts[index], levels[index]);
+        }
+    }
+
+    /**
+     * Returns the state the given state would be in after every event from the given one onwards
+     */
+    public long replay(long state, long fromEvent) {
+        return replay(state, fromEvent, eventCount);
+    }
+
+    /**
+     * Returns the state the given state would be in after the events from fromEvent up to but not including toEvent
+     */
+    public long replay(long state, long fromEvent, long toEvent) {
+        if (fromEvent == toEvent)
+            return state;
+        LCGRandom rand = LCGRandom.withState(state);
+        for (long event = fromEvent; event < toEvent; event++) {
+            int index = checkIndex(event);
+            apply(rand, EVENT_TYPES[types[index]], amounts[index], levels[index]);
+        }
+        return rand.getState();
+    }
+
+    /**
+     * Uses the given RNG the same way the server would for a single event
+     */
+    public static void apply(LCGRandom rand, EventType type, int amount, int level) {
+        switch (type) {
+            case NEXT_INT:
+            case ENCHANT:
+                rand.nextInt();
+                break;
+            case DROP_ITEM:
+                for (int i = 0; i < 4; i++)
+                    rand.nextInt();
+                break;
+            case UNBREAKING:
+                for (int i = 0; i < amount; i++)
+                    rand.nextInt(level + 1);
+                break;
+            case UNBREAKING_ARMOR:
+                for (int i = 0; i < amount; i++)
+                    if (rand.nextFloat() >= 0.6)
+                        rand.nextInt(level + 1);
+                break;
+            case UNBREAKING_UNCERTAIN:
+                throw new IllegalArgumentException("Cannot replay an uncertain event");
+        }
+    }
+
+    private int checkIndex(long event) {
+        if (event < getOldestEvent() || event >= eventCount)
+            throw new IndexOutOfBoundsException("Event " + event + " is not in the ledger, which holds "
+                    + getOldestEvent() + " to " + (eventCount - 1));
+        return (int) (event % CAPACITY);
+    }
+
+}
@@ -0,0 +1,91 @@
+package net.earthcomputer.clientcommands.features;
+
+import java.util.Arrays;
+
+/**
+ * The set of player RNG states which are still possible, stored as a primitive long array.
+ *
+ * Each XP seed we crack gives us the top 32 bits of the player RNG state, leaving 2^16 possibilities for the rest.
+ * Every enchantment after that steps all of the candidates forward and keeps the ones which produced the new XP seed.
+ * Like {@link XPSeedCandidates}, the backing array is allocated once and reused, and the step and filter are done in
+ * one pass which compacts the survivors in place, so repeated enchanting doesn't churn the GC.
+ */
+public final class PlayerSeedCandidates {
+
+    public static final int MAX_CANDIDATES = 1 << 16;
+
+    // the bits of the state which nextInt() returns
+    private static final long XP_SEED_MASK = 0x0000_ffff_ffff_0000L;
+
+    private long[] seeds = new long[0];
+    private int size = 0;
+
+    /**
+     * Replaces the contents of this set with every state whose nextInt() would have returned the given XP seed
+     */
+    public void fill(int xpSeed) {
+        if (seeds.length < MAX_CANDIDATES)
+            seeds = new long[MAX_CANDIDATES];
+        long highBits = ((long) xpSeed << 16) & XP_SEED_MASK;
+        for (int lowBits = 0; lowBits < MAX_CANDIDATES; lowBits++) {
+            seeds[lowBits] = highBits | lowBits;
+        }
+        size = MAX_CANDIDATES;
+    }
+
+    /**
+     * Replaces the contents of this set with the contents of another set
+     */
+    public void copyFrom(PlayerSeedCandidates other) {
+        int otherSize = other.size;
+        if (seeds.length < otherSize)
+            seeds = new long[MAX_CANDIDATES];
+        System.arraycopy(other.seeds, 0, seeds, 0, otherSize);
+        size = otherSize;
+    }
+
+    /**
+     * Steps every state forward by one nextInt() call, and keeps those for which the call returned the given XP seed
+     */
+    public void advanceAndRetain(int xpSeed) {
+        long highBits = ((long) xpSeed << 16) & XP_SEED_MASK;
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            long seed = LCGRandom.step(seeds[i]);
+            if ((seed & XP_SEED_MASK) == highBits)
+                seeds[newSize++] = seed;
+        }
+        size = newSize;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return seeds[index];
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(seeds, size);
+    }
+
+    /**
+     * Returns roughly how many bytes this set is holding on to, which doesn't shrink as candidates are removed
+     */
+    public long getMemoryFootprint() {
+        // object header and fields, plus the array header and elements
+        return 16 + 16 + 8L * seeds.length;
+    }
+
+}
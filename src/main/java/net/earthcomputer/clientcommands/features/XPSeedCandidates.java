@@ -0,0 +1,177 @@
+package net.earthcomputer.clientcommands.features;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * The set of XP seeds which are still possible, stored as a primitive int array.
+ *
+ * At the start of an XP seed crack there are 2^20 possibilities, so boxing each of them into a HashSet causes a big
+ * GC spike right as the enchanting GUI opens. Instead, the backing array is allocated once and reused, and filtering
+ * compacts the surviving seeds towards the front of the array in place.
+ */
+public final class XPSeedCandidates {
+
+    public static final int MAX_CANDIDATES = 1 << 20;
+    // below this it's not worth waking up the fork-join pool
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private int[] seeds = new int[1];
+    private int size = 0;
+
+    /**
+     * Replaces the contents of this set with every XP seed which agrees with the 12 bits of the seed that the server
+     * tells us when we open an enchanting table
+     */
+    public void fill(int serverReportedXPSeed) {
+        serverReportedXPSeed &= 0x0000fff0;
+        if (seeds.length < MAX_CANDIDATES)
+            seeds = new int[MAX_CANDIDATES];
+        int index = 0;
+        for (int highBits = 0; highBits < 65536; highBits++) {
+            for (int low4Bits = 0; low4Bits < 16; low4Bits++) {
+                seeds[index++] = (highBits << 16) | serverReportedXPSeed | low4Bits;
+            }
+        }
+        size = index;
+    }
+
+    /**
+     * Replaces the contents of this set with a single known XP seed
+     */
+    public void set(int xpSeed) {
+        seeds[0] = xpSeed;
+        size = 1;
+    }
+
+    /**
+     * Replaces the contents of this set with the given XP seeds
+     */
+    public void setAll(int[] xpSeeds) {
+        if (seeds.length < xpSeeds.length)
+            seeds = new int[xpSeeds.length];
+        System.arraycopy(xpSeeds, 0, seeds, 0, xpSeeds.length);
+        size = xpSeeds.length;
+    }
+
+    /**
+     * Replaces the contents of this set with the contents of another set
+     */
+    public void copyFrom(XPSeedCandidates other) {
+        int otherSize = other.size;
+        if (seeds.length < otherSize)
+            seeds = new int[Math.max(otherSize, Math.min(seeds.length * 2, MAX_CANDIDATES))];
+        System.arraycopy(other.seeds, 0, seeds, 0, otherSize);
+        size = otherSize;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes every seed which doesn't match the given predicate, keeping the survivors in their original order
+     */
+    public void retainIf(IntPredicate predicate) {
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            int seed = seeds[i];
+            if (predicate.test(seed))
+                seeds[newSize++] = seed;
+        }
+        size = newSize;
+    }
+
+    /**
+     * Same as {@link #retainIf(IntPredicate)}, except the array is split into chunks which are filtered concurrently
+     * in the common fork-join pool. Each leaf task gets its own predicate from the factory, so predicates are free to
+     * hold on to mutable state such as a Random. The survivors, and their order, are identical to the serial version.
+     * Blocks until all chunks have been filtered.
+     */
+    public void retainIfParallel(Supplier<? extends IntPredicate> predicateFactory) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (size < PARALLEL_THRESHOLD || pool.getParallelism() <= 1) {
+            retainIf(predicateFactory.get());
+            return;
+        }
+
+        int chunkCount = pool.getParallelism() * 4;
+        int chunkSize = (size + chunkCount - 1) / chunkCount;
+        chunkCount = (size + chunkSize - 1) / chunkSize;
+        int[] survivorCounts = new int[chunkCount];
+        pool.invoke(new FilterTask(predicateFactory, survivorCounts, chunkSize, 0, chunkCount));
+
+        // each chunk has compacted its survivors to its own start, now join the chunks together
+        int newSize = survivorCounts[0];
+        for (int chunk = 1; chunk < chunkCount; chunk++) {
+            System.arraycopy(seeds, chunk * chunkSize, seeds, newSize, survivorCounts[chunk]);
+            newSize += survivorCounts[chunk];
+        }
+        size = newSize;
+    }
+
+    private class FilterTask extends RecursiveAction {
+        private final Supplier<? extends IntPredicate> predicateFactory;
+        private final int[] survivorCounts;
+        private final int chunkSize;
+        private final int fromChunk;
+        private final int toChunk;
+
+        FilterTask(Supplier<? extends IntPredicate> predicateFactory, int[] survivorCounts, int chunkSize, int fromChunk, int toChunk) {
+            this.predicateFactory = predicateFactory;
+            this.survivorCounts = survivorCounts;
+            this.chunkSize = chunkSize;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                int mid = (fromChunk + toChunk) >>> 1;
+                invokeAll(new FilterTask(predicateFactory, survivorCounts, chunkSize, fromChunk, mid),
+                        new FilterTask(predicateFactory, survivorCounts, chunkSize, mid, toChunk));
+                return;
+            }
+
+            IntPredicate predicate = predicateFactory.get();
+            int start = fromChunk * chunkSize;
+            int end = Math.min(start + chunkSize, size);
+            int newEnd = start;
+            for (int i = start; i < end; i++) {
+                int seed = seeds[i];
+                if (predicate.test(seed))
+                    seeds[newEnd++] = seed;
+            }
+            survivorCounts[fromChunk] = newEnd - start;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return seeds[index];
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++)
+            action.accept(seeds[i]);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(seeds, size);
+    }
+
+}
@@ -3,9 +3,14 @@ package net.earthcomputer.clientcommands.mixin;
 import com.mojang.brigadier.CommandDispatcher;
 import net.cortex.clientAddon.cracker.SeedCracker;
 import net.earthcomputer.clientcommands.ClientCommands;
+import net.earthcomputer.clientcommands.features.EnchantPowerCache;
+import net.earthcomputer.clientcommands.features.EnchantmentCracker;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.client.network.packet.ChunkDataS2CPacket;
 import net.minecraft.client.network.packet.CommandTreeS2CPacket;
 import net.minecraft.client.network.packet.EntitySpawnS2CPacket;
+import net.minecraft.client.network.packet.UnloadChunkS2CPacket;
+import net.minecraft.entity.EntityType;
 import net.minecraft.server.command.CommandSource;
 import net.minecraft.server.command.ServerCommandSource;
 import org.spongepowered.asm.mixin.Mixin;
@@ -29,6 +34,19 @@ public class MixinClientPlayNetworkHandler {
     @Inject(method = "onEntitySpawn", at = @At("RETURN"))
     public void onOnEntitySpawn(EntitySpawnS2CPacket packet, CallbackInfo ci) {
         SeedCracker.onEntityCreation(packet);
+        if (packet.getEntityTypeId() == EntityType.ITEM)
+            EnchantmentCracker.onItemSpawn(packet.getX(), packet.getY(), packet.getZ(),
+                    (int) Math.round(packet.getVelocityX() * 8000), (int) Math.round(packet.getVelocityz() * 8000));
+    }
+
+    @Inject(method = "onChunkData", at = @At("RETURN"))
+    public void onOnChunkData(ChunkDataS2CPacket packet, CallbackInfo ci) {
+        EnchantPowerCache.onChunkUpdate(packet.getX(), packet.getZ());
+    }
+
+    @Inject(method = "onUnloadChunk", at = @At("RETURN"))
+    public void onOnUnloadChunk(UnloadChunkS2CPacket packet, CallbackInfo ci) {
+        EnchantPowerCache.onChunkUpdate(packet.getX(), packet.getZ());
     }
 
 }
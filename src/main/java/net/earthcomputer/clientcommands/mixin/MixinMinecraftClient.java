@@ -7,6 +7,7 @@ import net.earthcomputer.clientcommands.TempRules;
 import net.earthcomputer.clientcommands.task.TaskManager;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.world.ClientWorld;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
@@ -22,8 +23,8 @@ public class MixinMinecraftClient {
     }
 
     @Inject(method = "setWorld", at = @At("HEAD"))
-    public void onSetWorld(CallbackInfo ci) {
-        EnchantmentCracker.onRecreatePlayer();
+    public void onSetWorld(ClientWorld world, CallbackInfo ci) {
+        EnchantmentCracker.onSetWorld(world != null);
         TaskManager.onWorldUnload();
     }
 
@@ -33,9 +34,14 @@ public class MixinMinecraftClient {
             ci.cancel();
     }
 
+    @Inject(method = "disconnect(Lnet/minecraft/client/gui/screen/Screen;)V", at = @At("HEAD"))
+    public void onStartDisconnect(Screen screen, CallbackInfo ci) {
+        EnchantmentCracker.onDisconnect();
+    }
+
     @Inject(method = "disconnect(Lnet/minecraft/client/gui/screen/Screen;)V", at = @At("RETURN"))
     public void onDisconnect(Screen screen, CallbackInfo ci) {
-        for (String rule : TempRules.getRules())
+        for (String rule : TempRules.getRulesResetOnDisconnect())
             TempRules.reset(rule);
         RenderSettings.clearEntityRenderSelectors();
     }